@@ -0,0 +1,141 @@
+package com.github.sudukosolver.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.solver.BacktrackingSolver;
+import com.github.sudukosolver.solver.DancingLinksSolver;
+import com.github.sudukosolver.solver.IndexOrdering;
+import com.github.sudukosolver.solver.MinimumRemainingValues;
+import com.github.sudukosolver.solver.Ordering;
+import com.github.sudukosolver.solver.PropagatingSolver;
+import com.github.sudukosolver.solver.Solver;
+
+/**
+ * Access to the puzzles bundled under <code>corpus/</code>. Puzzle sets hold
+ * one puzzle per line in the 81 character format, Killer puzzles are one per
+ * file in the format of <code>killer.txt</code>.
+ *
+ * @author Matt
+ *
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * Puzzles of a set such as "easy" or "17-clue"
+     */
+    static String[] lines(String set) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(open(set + ".txt"), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    static Grid[] grids(String set) {
+        String[] lines = lines(set);
+        Grid[] grids = new Grid[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            grids[i] = Grid.parse(lines[i]);
+        }
+        return grids;
+    }
+
+    /**
+     * Write a puzzle line to a temporary file in the comma separated format
+     * read by <code>Sudoku.create</code>
+     */
+    static String toCommaFile(String line) {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < Layout.CLASSIC.cells(); i++) {
+            char c = line.charAt(i);
+            file.append(c == '.' ? '0' : c);
+            file.append((i + 1) % Layout.CLASSIC.size() == 0 ? '\n' : ',');
+        }
+        try {
+            Path path = Files.createTempFile("sudoku", ".txt");
+            path.toFile().deleteOnExit();
+            Files.write(path, file.toString().getBytes(StandardCharsets.US_ASCII));
+            return path.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copy a bundled file such as "killer-1.txt" to a temporary file so it can
+     * be read by path
+     */
+    static String toFile(String name) {
+        try (InputStream in = open(name)) {
+            Path path = Files.createTempFile("sudoku", ".txt");
+            path.toFile().deleteOnExit();
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            return path.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Solver engine by benchmark parameter name
+     */
+    static Solver engine(String name) {
+        switch (name) {
+        case "backtracking":
+            return new BacktrackingSolver();
+        case "dancing-links":
+            return new DancingLinksSolver();
+        case "propagating":
+            return new PropagatingSolver();
+        default:
+            throw new IllegalArgumentException("Unknown engine " + name);
+        }
+    }
+
+    /**
+     * Search ordering by benchmark parameter name
+     */
+    static Ordering ordering(String name) {
+        switch (name) {
+        case "index":
+            return new IndexOrdering();
+        case "mrv":
+            return new MinimumRemainingValues();
+        case "mrv-lcv":
+            return new MinimumRemainingValues(true);
+        default:
+            throw new IllegalArgumentException("Unknown ordering " + name);
+        }
+    }
+
+    private static InputStream open(String name) throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name);
+        if (in == null) {
+            throw new IOException("No corpus file " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.sudukosolver.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Grader;
+import com.github.sudukosolver.Grid;
+
+/**
+ * Latency of rating a classic puzzle by human techniques, cycling through
+ * every puzzle of a corpus set.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradeBenchmark {
+
+    @Param({ "easy", "hard", "generated-hard", "generated-expert", "17-clue", "anti-brute-force", "unsolvable" })
+    public String corpus;
+
+    private Grid[] puzzles;
+    private final Grader grader = new Grader();
+    private int next;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.grids(corpus);
+    }
+
+    @Benchmark
+    public Grader.Grade grade() {
+        Grid grid = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return grader.grade(grid);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.sudukosolver.benchmark;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Killer;
+import com.github.sudukosolver.Sudoku;
+
+/**
+ * Cost of <code>isComplete()</code> on a solved board, the check made at every
+ * leaf of a search, and on an unsolved board.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsCompleteBenchmark {
+
+    private Sudoku solved;
+    private Sudoku unsolved;
+    private Killer killer;
+
+    @Setup
+    public void setup() throws FileNotFoundException {
+        String line = Corpus.lines("easy")[0];
+        solved = Sudoku.create(Corpus.toCommaFile(line));
+        solved.solve();
+        unsolved = Sudoku.create(Corpus.toCommaFile(line));
+        killer = Killer.create(Corpus.toFile("killer-1.txt"));
+        killer.solve();
+    }
+
+    @Benchmark
+    public boolean sudoku() {
+        return solved.isComplete();
+    }
+
+    @Benchmark
+    public boolean sudokuUnsolved() {
+        return unsolved.isComplete();
+    }
+
+    @Benchmark
+    public boolean killer() {
+        return killer.isComplete();
+    }
+}
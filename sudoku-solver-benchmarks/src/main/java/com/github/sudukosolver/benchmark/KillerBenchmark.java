@@ -0,0 +1,50 @@
+package com.github.sudukosolver.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Killer;
+
+/**
+ * Time to solve a Killer puzzle through <code>Killer.solve()</code>. Killer
+ * puzzles can take seconds, so each invocation is timed on its own.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KillerBenchmark {
+
+    @Param({ "killer-1.txt", "killer-2.txt", "killer-3.txt" })
+    public String puzzle;
+
+    private Killer killer;
+
+    @Setup
+    public void setup() {
+        killer = Killer.create(Corpus.toFile(puzzle));
+    }
+
+    @Benchmark
+    public boolean solve() {
+        killer.reset();
+        killer.solve();
+        return killer.isComplete();
+    }
+}
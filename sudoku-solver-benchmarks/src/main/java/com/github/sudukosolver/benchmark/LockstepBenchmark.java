@@ -0,0 +1,80 @@
+package com.github.sudukosolver.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.lanes.LockstepSolver;
+import com.github.sudukosolver.solver.PropagatingSolver;
+
+/**
+ * Latency per puzzle of solving a chunk of classic puzzles in lockstep, four
+ * at a time, against solving the same chunk one puzzle at a time with the
+ * <code>PropagatingSolver</code> the lanes fall back to. Each invocation
+ * solves fresh copies of the next chunk of a corpus set.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockstepBenchmark {
+
+    private static final int CHUNK = 64;
+
+    @Param({ "easy", "hard", "17-clue", "generated-hard" })
+    public String corpus;
+
+    private Grid[] puzzles;
+    private final LockstepSolver lockstep = new LockstepSolver();
+    private final PropagatingSolver propagating = new PropagatingSolver();
+    private final Grid[] chunk = new Grid[CHUNK];
+    private int next;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.grids(corpus);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public boolean[] lockstep() {
+        return lockstep.solve(nextChunk());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public int oneAtATime() {
+        int solved = 0;
+        for (Grid grid : nextChunk()) {
+            if (propagating.solve(grid)) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    private Grid[] nextChunk() {
+        for (int i = 0; i < CHUNK; i++) {
+            chunk[i] = new Grid(puzzles[next]);
+            next = (next + 1) % puzzles.length;
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.sudukosolver.benchmark;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Killer;
+import com.github.sudukosolver.PuzzleReader;
+import com.github.sudukosolver.Sudoku;
+
+/**
+ * Cost of loading a puzzle, through <code>populate</code> from a file for both
+ * <code>Sudoku</code> and <code>Killer</code>, and from an in-memory line as a
+ * String or as bytes decoded into a reused grid.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    private String line;
+    private ByteBuffer bytes;
+    private final Grid grid = new Grid();
+    private String sudokuFile;
+    private String killerFile;
+
+    @Setup
+    public void setup() {
+        line = Corpus.lines("hard")[0];
+        bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        sudokuFile = Corpus.toCommaFile(line);
+        killerFile = Corpus.toFile("killer-1.txt");
+    }
+
+    @Benchmark
+    public Sudoku sudoku() throws FileNotFoundException {
+        return Sudoku.create(sudokuFile);
+    }
+
+    @Benchmark
+    public Killer killer() {
+        return Killer.create(killerFile);
+    }
+
+    @Benchmark
+    public Grid line() {
+        return Grid.parse(line);
+    }
+
+    @Benchmark
+    public Grid bytes() throws IOException {
+        new PuzzleReader(bytes, PuzzleReader.Format.LINE).next(grid);
+        return grid;
+    }
+}
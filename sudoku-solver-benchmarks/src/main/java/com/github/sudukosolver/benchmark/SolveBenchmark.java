@@ -0,0 +1,57 @@
+package com.github.sudukosolver.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.solver.Solver;
+
+/**
+ * Latency of solving a classic puzzle, cycling through every puzzle of a
+ * corpus set. Each invocation solves a fresh copy of the puzzle.
+ *
+ * @author Matt
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({ "easy", "hard", "17-clue", "anti-brute-force", "unsolvable" })
+    public String corpus;
+
+    @Param({ "backtracking", "dancing-links", "propagating" })
+    public String engine;
+
+    private Grid[] puzzles;
+    private Solver solver;
+    private int next;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.grids(corpus);
+        solver = Corpus.engine(engine);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Grid grid = new Grid(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        return solver.solve(grid);
+    }
+}
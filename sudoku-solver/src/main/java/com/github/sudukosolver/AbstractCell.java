@@ -1,23 +1,21 @@
 package com.github.sudukosolver;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
+/**
+ * View of a single cell on a <code>Grid</code>. The value is held by the grid,
+ * so reading or writing it through a cell and through the grid are equivalent.
+ */
 public abstract class AbstractCell {
     // x, y coordinate of square, 0,0 is top left
-    protected int x, y, value;
-    // Local row
-    protected List<? extends AbstractCell> row = new ArrayList<>();
-    // Local column
-    protected List<? extends AbstractCell> column = new ArrayList<>();
-    // Local grid
-    protected List<? extends AbstractCell> localNonet = new LinkedList<>();
+    protected final int x, y;
+    // Position of this cell on the grid
+    protected final int index;
+    protected final Grid grid;
 
-    public AbstractCell(int x, int y, int value) {
-        this.x = x;
-        this.y = y;
-        this.value = value;
+    public AbstractCell(Grid grid, int index) {
+        this.grid = grid;
+        this.index = index;
+        this.x = grid.getLayout().row(index);
+        this.y = grid.getLayout().column(index);
     }
 
     public int getX() {
@@ -28,71 +26,34 @@ public abstract class AbstractCell {
         return y;
     }
 
-    public List<? extends AbstractCell> getGrid() {
-        return localNonet;
-    }
-
-    public List<? extends AbstractCell> getColumn() {
-        return column;
-    }
-
-    public List<? extends AbstractCell> getRow() {
-        return row;
+    public int getIndex() {
+        return index;
     }
 
     public  boolean isEmpty() {
-        return value == 0;
+        return grid.isEmpty(index);
     }
     
     // Some are final so we know that the value should not be changed
     public abstract boolean isFinal();
-    
-    public void setRow(List<? extends AbstractCell> row) {
-        this.row = row;
-    }
-
-    public <E extends AbstractCell> void setColumn(List<E> column) {
-        this.column = column;
-    }
-
-    public <E extends AbstractCell> void setLocalNonet(List<E> grid) {
-        this.localNonet = grid;
-    }
 
     public int getValue() {
-        return value;
+        return grid.get(index);
     }
 
     public void setValue(int value) {
-        this.value = value;
+        grid.set(index, value);
     }
 
     @Override
     public String toString() {
-        return "Square{" + "x=" + x + "y=" + y + "value=" + value + '}';
+        return "Square{" + "x=" + x + "y=" + y + "value=" + getValue() + '}';
     }
 
     public abstract boolean isValid();
     
     public abstract void reset();
 
-    protected boolean valid(List<? extends AbstractCell> cells) {
-        return cells.stream().filter(s -> !this.equals(s))
-                .noneMatch(s -> s.getValue() == this.value);
-    }
-
-    protected boolean isNonetValid() {
-       return valid(this.localNonet);
-    }
-
-    protected boolean isColumnValid() {
-        return valid(this.column);
-    }
-
-    protected boolean isRowValid() {
-        return valid(this.row);
-    }
-    
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Cell) {
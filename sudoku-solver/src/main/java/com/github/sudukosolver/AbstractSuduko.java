@@ -1,91 +1,245 @@
 package com.github.sudukosolver;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import com.github.sudukosolver.print.Printer;
 import com.github.sudukosolver.print.SudokuPrinter;
+import com.github.sudukosolver.solver.BoundedSolver;
+import com.github.sudukosolver.solver.PropagatingSolver;
+import com.github.sudukosolver.solver.SolutionCounter;
+import com.github.sudukosolver.solver.SolutionStore;
+import com.github.sudukosolver.solver.SolveLimits;
+import com.github.sudukosolver.solver.SolveMetrics;
+import com.github.sudukosolver.solver.SolveOutcome;
+import com.github.sudukosolver.solver.Solver;
+import com.github.sudukosolver.solver.StoredSolver;
 
 public abstract class AbstractSuduko<E extends AbstractCell> {
     protected static final String FILE_DELIMITER = ",";
     
-    private static final int ROW_SIZE = 9;
-    private static final int ROW_COUNT = 9;
+    private static final int ROW_SIZE = Layout.CLASSIC.size();
+    private static final int ROW_COUNT = Layout.CLASSIC.size();
+
+    // Values of the puzzle, the cells in board are views onto this grid
+    protected Grid grid;
 
     protected List<E> board;
     
     protected boolean isComplete;
     
-    // Milliseconds that this puzzle took to solve, or -1 if unsolved
+    // Nanoseconds that the last attempt to solve this puzzle took, or -1 if
+    // not yet attempted
     protected long timeToSolve;
     
     // How many combonation of values were tried when solving the puzzle
-    protected int combosTried;
+    protected long combosTried;
+
+    // Nanoseconds taken to read the puzzle
+    protected long parseNanos;
+
+    private final SolveMetrics metrics = new SolveMetrics();
+
+    // Solutions looked up before solving, null for none
+    private SolutionStore store;
 
     // Populate Sudoko
     protected abstract void populate(String filePath);
     
-    // Is Sudoku complete?
-    public abstract boolean isComplete();
-    
     private Printer<AbstractSuduko<?>> printer = new SudokuPrinter<AbstractSuduko<?>>();
     
     
     public AbstractSuduko() {
-        board = new ArrayList<>(81);
+        grid = new Grid();
+        board = new ArrayList<>(grid.getLayout().cells());
         timeToSolve = -1;
         isComplete = false;
         combosTried = 0;
         printer.printTarget(this);
     }
+
+    /**
+     * Populate this Sudoku from a file, timing how long it takes
+     */
+    protected final void load(String filePath) {
+        long start = System.nanoTime();
+        populate(filePath);
+        parseNanos = System.nanoTime() - start;
+        metrics.setParseNanos(parseNanos);
+    }
+
     /**
      * Attempt to solve this Sudoku. Use <code>isComplete()</code> to check if
      * puzzle was solved.
-     * This method attempts to solve the puzzle by trying all possible combinations
-     * starting from the top left cell and advancing left to right returning the first
-     * correct solution. Therefore there may be other solutions to the puzzle.
+     * This method uses the engine from <code>createSolver()</code> and returns
+     * the first correct solution found. Therefore there may be other solutions
+     * to the puzzle.
      */
     public void solve() {
+        solve(createSolver());
+    }
+
+    /**
+     * Engine used by <code>solve()</code>, a <code>PropagatingSolver</code>
+     * which deduces what it can before guessing, looking the puzzle up in the
+     * solution store first when one is set.
+     */
+    protected Solver createSolver() {
+        Solver engine = new PropagatingSolver();
+        return store == null ? engine : new StoredSolver(store, engine);
+    }
+
+    /**
+     * Look puzzles up in store before solving them with <code>solve()</code>,
+     * keeping each new solution there, or stop looking when store is null
+     */
+    public void setSolutionStore(SolutionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Attempt to solve this Sudoku with the given engine. Use
+     * <code>isComplete()</code> to check if puzzle was solved.
+     * 
+     * @param solver
+     *            engine to solve the puzzle with
+     */
+    public void solve(Solver solver) {
         if (board.isEmpty()) {
             throw new RuntimeException("Must specify puzzle to solve");
         }
         if (isComplete) {
             return;
         }
-        combosTried = 0;
-        long start = System.currentTimeMillis();
-        isComplete = solve(0);
-        timeToSolve = isComplete ? System.currentTimeMillis() - start : -1;
+        grid.reset();
+        grid.resetPlacements();
+        metrics.reset();
+        metrics.setParseNanos(parseNanos);
+        long start = System.nanoTime();
+        isComplete = solver.solve(grid, metrics);
+        timeToSolve = System.nanoTime() - start;
+        combosTried = grid.getPlacements();
     }
-    
-    private boolean solve(int index) {
-        // Reached the last square on the board, check if puzzle complete
-        if (index == board.size()) {
-            return isComplete();
+
+    /**
+     * Attempt to solve this Sudoku, giving up once timeout has passed
+     *
+     * @return how the attempt ended
+     */
+    public SolveOutcome solve(Duration timeout) {
+        return solve(SolveLimits.within(timeout));
+    }
+
+    /**
+     * Attempt to solve this Sudoku, giving up after maxNodes guesses
+     *
+     * @return how the attempt ended
+     */
+    public SolveOutcome solve(long maxNodes) {
+        return solve(SolveLimits.nodes(maxNodes));
+    }
+
+    /**
+     * Attempt to solve this Sudoku within limits, with the engine from
+     * <code>createSolver()</code> when it can be bounded and otherwise a
+     * <code>PropagatingSolver</code>. Use <code>isComplete()</code> to check
+     * if puzzle was solved. Bounded engines record no metrics, so those of
+     * an earlier unbounded attempt are left as they were.
+     *
+     * @return how the attempt ended
+     */
+    public SolveOutcome solve(SolveLimits limits) {
+        if (board.isEmpty()) {
+            throw new RuntimeException("Must specify puzzle to solve");
         }
-        E s = board.get(index);
-        // Do not alter 'final' values
-        if (s.isFinal()) {
-            return solve(index + 1);
-        } else {
-            // Attempt each number 1 - 9 for each square
-            for (int i = 1; i <= 9; i++) {
-                s.setValue(i);
-                combosTried++;
-                // If this is a valid value move on to the next square
-                if (s.isValid()) {
-                    boolean done = solve(index + 1);
-                    if (done) {
-                        return true;
-                    }
-                }
-            }
-            // When all attempts fail for this square, reset and return
-            s.setValue(0);
-            return false;
+        if (isComplete) {
+            return SolveOutcome.SOLVED;
         }
+        Solver engine = createSolver();
+        BoundedSolver solver = engine instanceof BoundedSolver ? (BoundedSolver) engine : new PropagatingSolver();
+        grid.reset();
+        grid.resetPlacements();
+        long start = System.nanoTime();
+        SolveOutcome outcome = solver.solve(grid, limits);
+        timeToSolve = System.nanoTime() - start;
+        combosTried = grid.getPlacements();
+        isComplete = outcome == SolveOutcome.SOLVED;
+        return outcome;
+    }
+
+    /**
+     * Timings and counters of the last unbounded attempt to solve this Sudoku,
+     * empty but for the time taken to read it until then
+     */
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Editor of this Sudoku for changing it a cell at a time, keeping track
+     * of conflicts and whether it can still be solved. Changes must go
+     * through the editor, not the cells, while it is in use.
+     */
+    public BoardEditor edit() {
+        isComplete = false;
+        return new BoardEditor(grid);
+    }
+
+    /**
+     * Count the solutions of this Sudoku from its given values, stopping once
+     * limit have been found. The board is not changed.
+     * 
+     * @param limit
+     *            most solutions to look for
+     * @return number of solutions, no more than limit
+     */
+    public long countSolutions(long limit) {
+        return new SolutionCounter().count(puzzle(), limit);
+    }
+
+    /**
+     * Check if this Sudoku has exactly one solution, stopping as soon as a
+     * second is found
+     */
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+
+    /**
+     * Rate how hard this Sudoku is for a person from its given values, see
+     * <code>Grader</code>. The board is not changed.
+     */
+    public Grader.Grade grade() {
+        return new Grader().grade(puzzle());
+    }
+
+    /**
+     * Lazily iterate over every solution of this Sudoku from its given values.
+     * The board is not changed.
+     */
+    public Iterator<Grid> solutions() {
+        return new PropagatingSolver().solutions(puzzle());
+    }
+
+    // Copy of the grid holding only the given values
+    private Grid puzzle() {
+        Grid puzzle = new Grid(grid);
+        puzzle.reset();
+        return puzzle;
+    }
+
+    /**
+     * Check if this Sudoku has been solved. A solved Sudoku has values 1..9 in
+     * each column, row and local grid only once.
+     * 
+     * @return true is this sudoku has been solved false if it has not been
+     *         solved.
+     */
+    public boolean isComplete() {
+        return grid.isSolved();
     }
 
     public static int getRowCount() {
@@ -95,16 +249,30 @@ public abstract class AbstractSuduko<E extends AbstractCell> {
     public static int getRowSize() {
         return ROW_SIZE;
     }
+
+    /**
+     * Number of rows, columns and digits of this puzzle, unlike
+     * <code>getRowSize</code> which is always that of a 9x9 puzzle
+     */
+    public int getSize() {
+        return grid.getLayout().size();
+    }
     
     public List<E> getBoard(){
         return Collections.unmodifiableList(board);
     }
+
+    public Grid getGrid() {
+        return grid;
+    }
     
     public void reset() {
-        board.stream().filter(c -> !c.isFinal()).forEach(c -> c.setValue(0));
+        grid.reset();
         isComplete = false;
         timeToSolve = -1;
         combosTried = 0;
+        metrics.reset();
+        metrics.setParseNanos(parseNanos);
     }
 
 }
@@ -0,0 +1,210 @@
+package com.github.sudukosolver;
+
+import com.github.sudukosolver.solver.PropagatingSolver;
+
+/**
+ * Change a grid one cell at a time while keeping track of whether it breaks a
+ * rule, whether it is complete and whether it can still be solved, as an
+ * interactive board needs after every move.
+ *
+ * How many cells of each row, column and nonet hold each digit is counted, so
+ * a change updates conflicts in time proportional to its three units rather
+ * than checking the whole board. Solvability is kept as a solution that
+ * agrees with the board, or as knowing there is none. Clearing a cell keeps
+ * the solution, placing the digit the solution has keeps it and placing any
+ * digit keeps a board unsolvable, so only the other changes search again,
+ * and then only when asked.
+ *
+ * Changes to the grid must go through the editor while it is in use. Not
+ * thread safe.
+ *
+ * @author Matt
+ *
+ */
+public class BoardEditor {
+
+    private final Grid grid;
+    private final Layout layout;
+    private final PropagatingSolver solver = new PropagatingSolver();
+
+    // Cells of each unit holding each digit, by unit * (size + 1) + digit
+    private final int[] counts;
+    // Units and digits held by more than one cell of the unit
+    private int conflicts;
+    private int filled;
+
+    // A solution agreeing with every value on the board, null when not known
+    private int[] solution;
+    // Whether the board is known to have no solution
+    private boolean unsolvable;
+
+    public BoardEditor(Grid grid) {
+        this.grid = grid;
+        this.layout = grid.getLayout();
+        this.counts = new int[layout.unitCount() * (layout.size() + 1)];
+        for (int index = 0; index < layout.cells(); index++) {
+            if (!grid.isEmpty(index)) {
+                count(index, grid.get(index), 1);
+                filled++;
+            }
+        }
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Put digit in the cell at index, replacing any value there. The digit
+     * may break a rule, see <code>isConflicting</code>.
+     *
+     * @throws IllegalArgumentException
+     *             when the cell was given or digit is out of range
+     */
+    public void place(int index, int digit) {
+        if (digit < 1 || digit > layout.size()) {
+            throw new IllegalArgumentException("Invalid digit " + digit);
+        }
+        int old = grid.get(index);
+        if (old == digit) {
+            return;
+        }
+        if (old != 0) {
+            clear(index);
+        }
+        checkNotGiven(index);
+        if (count(index, digit, 1)) {
+            // Unit masks can not hold a digit twice, rebuild them
+            grid.set(index, digit);
+        } else {
+            grid.place(index, digit);
+        }
+        filled++;
+        if (solution != null && solution[index] != digit) {
+            solution = null;
+        }
+    }
+
+    /**
+     * Empty the cell at index
+     *
+     * @throws IllegalArgumentException
+     *             when the cell was given
+     */
+    public void clear(int index) {
+        int old = grid.get(index);
+        if (old == 0) {
+            return;
+        }
+        checkNotGiven(index);
+        if (count(index, old, -1)) {
+            grid.set(index, 0);
+        } else {
+            grid.clear(index);
+        }
+        filled--;
+        // Fewer values may allow a solution, any solution known still agrees
+        unsolvable = false;
+    }
+
+    /**
+     * Whether the cell at index holds a digit that a peer also holds
+     */
+    public boolean isConflicting(int index) {
+        int digit = grid.get(index);
+        if (digit == 0) {
+            return false;
+        }
+        int size = layout.size();
+        return counts[slot(layout.row(index), digit)] > 1 || counts[slot(size + layout.column(index), digit)] > 1
+                || counts[slot(size * 2 + layout.nonet(index), digit)] > 1;
+    }
+
+    /**
+     * Whether any two cells of a row, column or nonet hold the same digit
+     */
+    public boolean hasConflicts() {
+        return conflicts > 0;
+    }
+
+    /**
+     * Digits that may go in the empty cell at index without breaking a rule
+     */
+    public int candidates(int index) {
+        return grid.allowed(index);
+    }
+
+    /**
+     * Whether every cell is filled and every rule holds, the same as
+     * <code>Grid.isSolved</code>
+     */
+    public boolean isComplete() {
+        return filled == layout.cells() && conflicts == 0
+                && (grid.getConstraint() == null || grid.getConstraint().isSatisfied(grid));
+    }
+
+    /**
+     * Whether the empty cells can be filled so that every rule holds,
+     * searching only when the last answer may no longer be right
+     */
+    public boolean isSolvable() {
+        if (conflicts > 0) {
+            return false;
+        }
+        if (solution == null && !unsolvable) {
+            Grid copy = new Grid(grid);
+            if (solver.solve(copy)) {
+                solution = new int[layout.cells()];
+                for (int index = 0; index < solution.length; index++) {
+                    solution[index] = copy.get(index);
+                }
+            } else {
+                unsolvable = true;
+            }
+        }
+        return solution != null;
+    }
+
+    /**
+     * Digit of the cell at index in a solution that agrees with the board, 0
+     * when the board can not be solved
+     */
+    public int hint(int index) {
+        return isSolvable() ? solution[index] : 0;
+    }
+
+    private void checkNotGiven(int index) {
+        if (grid.isGiven(index)) {
+            throw new IllegalArgumentException("Cell " + index + " was given");
+        }
+    }
+
+    /**
+     * Add change to the count of digit in each unit of the cell at index
+     *
+     * @return whether a unit holds the digit in another cell after the change
+     */
+    private boolean count(int index, int digit, int change) {
+        int size = layout.size();
+        return countUnit(layout.row(index), digit, change) | countUnit(size + layout.column(index), digit, change)
+                | countUnit(size * 2 + layout.nonet(index), digit, change);
+    }
+
+    private boolean countUnit(int unit, int digit, int change) {
+        int slot = slot(unit, digit);
+        int before = counts[slot];
+        int after = before + change;
+        counts[slot] = after;
+        if (before <= 1 && after > 1) {
+            conflicts++;
+        } else if (before > 1 && after <= 1) {
+            conflicts--;
+        }
+        // Others holding digit, excluding the cell changed
+        return (change > 0 ? before : after) > 0;
+    }
+
+    private int slot(int unit, int digit) {
+        return unit * (layout.size() + 1) + digit;
+    }
+}
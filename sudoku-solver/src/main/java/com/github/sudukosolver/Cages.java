@@ -0,0 +1,307 @@
+package com.github.sudukosolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The cages of a Killer Sudoku. Each cell belongs to exactly one cage, the
+ * values of a cage must add up to its total and no digit may repeat within a
+ * cage.
+ *
+ * Each cage is checked against a table of the digit combinations, as masks,
+ * that make up its total with its number of cells. A digit is only allowed in
+ * a cell while some combination still holds it and every digit already placed
+ * in the cage, so a cage that can no longer reach its total is rejected as
+ * soon as that happens rather than once it is full.
+ *
+ * The "45 rule" adds further cages. The cages that lie wholly within a row,
+ * column or nonet leave the rest of that unit to add up to 45 less their
+ * totals, and that rest is checked in the same way.
+ *
+ * @author Matt
+ *
+ */
+class Cages implements Constraint {
+
+    // Killer puzzles are always 9x9
+    private static final Layout LAYOUT = Layout.CLASSIC;
+    private static final int SIZE = LAYOUT.size();
+    private static final int CELLS = LAYOUT.cells();
+    private static final int UNIT_TOTAL = 45;
+
+    // Masks of the distinct digits with a given count and sum
+    private static final int[][][] COMBINATIONS = new int[SIZE + 1][UNIT_TOTAL + 1][];
+
+    static {
+        List<List<List<Integer>>> found = new ArrayList<>();
+        for (int size = 0; size <= SIZE; size++) {
+            found.add(new ArrayList<>());
+            for (int total = 0; total <= UNIT_TOTAL; total++) {
+                found.get(size).add(new ArrayList<>());
+            }
+        }
+        for (int mask = 1; mask <= LAYOUT.all(); mask++) {
+            int total = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                total += Integer.numberOfTrailingZeros(rest) + 1;
+            }
+            found.get(Integer.bitCount(mask)).get(total).add(mask);
+        }
+        for (int size = 0; size <= SIZE; size++) {
+            for (int total = 0; total <= UNIT_TOTAL; total++) {
+                List<Integer> masks = found.get(size).get(total);
+                COMBINATIONS[size][total] = new int[masks.size()];
+                for (int i = 0; i < masks.size(); i++) {
+                    COMBINATIONS[size][total][i] = masks.get(i);
+                }
+            }
+        }
+    }
+
+    // Cage of each cell on the board
+    private final int[] cageOf;
+    // Cells in each cage, cages from the 45 rule follow the puzzle's own
+    private final int[][] cells;
+    private final int[] totals;
+    private final int[][] combinations;
+    // Every cage holding each cell, its own cage first
+    private final int[][] cagesOf;
+    // Number of cages in the puzzle itself
+    private final int count;
+
+    /**
+     * @param cageOf
+     *            cage of each cell, numbered from 0
+     * @param totals
+     *            total of each cage
+     */
+    Cages(int[] cageOf, int[] totals) {
+        this(cageOf, cellsOf(cageOf, totals.length), totals);
+    }
+
+    Cages(int[] cageOf, int[][] cells, int[] totals) {
+        this.cageOf = cageOf;
+        this.count = totals.length;
+
+        List<int[]> allCells = new ArrayList<>();
+        List<Integer> allTotals = new ArrayList<>();
+        for (int cage = 0; cage < count; cage++) {
+            allCells.add(cells[cage]);
+            allTotals.add(totals[cage]);
+        }
+        addUnitRests(cells, totals, allCells, allTotals);
+
+        this.cells = allCells.toArray(new int[allCells.size()][]);
+        this.totals = new int[allTotals.size()];
+        this.combinations = new int[this.totals.length][];
+        int[] holding = new int[CELLS];
+        for (int cage = 0; cage < this.totals.length; cage++) {
+            this.totals[cage] = allTotals.get(cage);
+            this.combinations[cage] = combinations(this.cells[cage].length, this.totals[cage]);
+            for (int cell : this.cells[cage]) {
+                holding[cell]++;
+            }
+        }
+        this.cagesOf = new int[CELLS][];
+        for (int index = 0; index < CELLS; index++) {
+            cagesOf[index] = new int[holding[index]];
+            holding[index] = 0;
+        }
+        for (int cage = 0; cage < this.totals.length; cage++) {
+            for (int cell : this.cells[cage]) {
+                cagesOf[cell][holding[cell]++] = cage;
+            }
+        }
+    }
+
+    /**
+     * Get the cells in each cage
+     */
+    private static int[][] cellsOf(int[] cageOf, int count) {
+        int[] sizes = new int[count];
+        for (int cage : cageOf) {
+            sizes[cage]++;
+        }
+        int[][] cells = new int[count][];
+        for (int cage = 0; cage < count; cage++) {
+            cells[cage] = new int[sizes[cage]];
+            sizes[cage] = 0;
+        }
+        for (int index = 0; index < cageOf.length; index++) {
+            int cage = cageOf[index];
+            cells[cage][sizes[cage]++] = index;
+        }
+        return cells;
+    }
+
+    /**
+     * Add a cage for the cells of each unit not covered by the cages lying
+     * wholly within it
+     */
+    private static void addUnitRests(int[][] cells, int[] totals, List<int[]> allCells, List<Integer> allTotals) {
+        for (int unit = 0; unit < LAYOUT.unitCount(); unit++) {
+            boolean[] covered = new boolean[CELLS];
+            int total = UNIT_TOTAL;
+            int left = SIZE;
+            for (int cage = 0; cage < totals.length; cage++) {
+                if (within(cells[cage], LAYOUT.unit(unit))) {
+                    for (int cell : cells[cage]) {
+                        covered[cell] = true;
+                    }
+                    total -= totals[cage];
+                    left -= cells[cage].length;
+                }
+            }
+            // Nothing to learn when no cage or every cage lies within the unit
+            if (left == 0 || left == SIZE) {
+                continue;
+            }
+            int[] rest = new int[left];
+            int n = 0;
+            for (int cell : LAYOUT.unit(unit)) {
+                if (!covered[cell]) {
+                    rest[n++] = cell;
+                }
+            }
+            allCells.add(rest);
+            allTotals.add(total);
+        }
+    }
+
+    private static boolean within(int[] cage, int[] unit) {
+        for (int cell : cage) {
+            boolean found = false;
+            for (int u : unit) {
+                found |= u == cell;
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Masks of the distinct digits with a given count and sum
+     */
+    static int[] combinations(int size, int total) {
+        if (size > SIZE || total < 0 || total > UNIT_TOTAL) {
+            return new int[0];
+        }
+        return COMBINATIONS[size][total];
+    }
+
+    int cageOf(int index) {
+        return cageOf[index];
+    }
+
+    int[] cells(int cage) {
+        return cells[cage];
+    }
+
+    int total(int cage) {
+        return totals[cage];
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Number of cages including those added by the 45 rule, which are
+     * numbered after the puzzle's own
+     */
+    int countWithRests() {
+        return totals.length;
+    }
+
+    /**
+     * Masks of the digit combinations that make up the total of a cage
+     */
+    int[] combinationsOf(int cage) {
+        return combinations[cage];
+    }
+
+    @Override
+    public boolean allows(Grid grid, int index, int digit) {
+        int bit = Grid.bit(digit);
+        for (int cage : cagesOf[index]) {
+            int placed = placed(grid, cage);
+            if ((placed & bit) != 0 || !fits(cage, placed | bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int restrict(Grid grid, int index, int candidates) {
+        for (int cage : cagesOf[index]) {
+            int placed = placed(grid, cage);
+            int open = 0;
+            for (int combination : combinations[cage]) {
+                if ((combination & placed) == placed) {
+                    open |= combination;
+                }
+            }
+            candidates &= open & ~placed;
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean isSatisfied(Grid grid) {
+        for (int cage = 0; cage < count; cage++) {
+            int placed = 0;
+            int sum = 0;
+            for (int cell : cells[cage]) {
+                placed |= Grid.bit(grid.get(cell));
+                sum += grid.get(cell);
+            }
+            if (sum != totals[cage] || Integer.bitCount(placed) != cells[cage].length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A cage is valid while it has an empty cell or when its values add up to
+     * its total
+     */
+    boolean isCageValid(Grid grid, int cage) {
+        int sum = 0;
+        for (int cell : cells[cage]) {
+            if (grid.isEmpty(cell)) {
+                return true;
+            }
+            sum += grid.get(cell);
+        }
+        return sum == totals[cage];
+    }
+
+    /**
+     * Check that some combination of the cage holds every digit of placed
+     */
+    private boolean fits(int cage, int placed) {
+        for (int combination : combinations[cage]) {
+            if ((combination & placed) == placed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mask of the digits placed in a cage
+     */
+    private int placed(Grid grid, int cage) {
+        int placed = 0;
+        for (int cell : cells[cage]) {
+            if (!grid.isEmpty(cell)) {
+                placed |= Grid.bit(grid.get(cell));
+            }
+        }
+        return placed;
+    }
+}
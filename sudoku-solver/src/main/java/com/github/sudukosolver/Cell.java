@@ -1,9 +1,5 @@
 package com.github.sudukosolver;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
 /**
  * Internal class to represent a single cell on a sudoku board
  * 
@@ -11,17 +7,12 @@ import java.util.List;
  */
 public class Cell extends AbstractCell implements Comparable<Cell> {
 
-    // If this value was specified when Square was initialized then isFinal is
-    // true
-    private boolean isFinal;
-
-    public Cell(int x, int y, int value) {
-        super(x, y, value);
-        isFinal = value != 0;
+    public Cell(Grid grid, int index) {
+        super(grid, index);
     }
 
     public boolean isSet() {
-        return this.value != 0;
+        return !grid.isEmpty(index);
     }
 
     @Override
@@ -31,16 +22,16 @@ public class Cell extends AbstractCell implements Comparable<Cell> {
 
     @Override
     public boolean isFinal() {
-        return isFinal;
+        return grid.isGiven(index);
     }
 
     public void setIsFinal(boolean isFinal) {
-        this.isFinal = isFinal;
+        grid.setGiven(index, isFinal);
     }
 
     @Override
     public boolean isValid() {
-        return isRowValid() && isColumnValid() && isNonetValid();
+        return grid.isValid(index);
     }
 
     @Override
@@ -0,0 +1,42 @@
+package com.github.sudukosolver;
+
+/**
+ * Rule applied to a <code>Grid</code> on top of the row, column and nonet
+ * rules, such as the cages of a Killer Sudoku. Implementations hold no grid
+ * state so one instance can be shared by copies of a grid.
+ *
+ * @author Matt
+ *
+ */
+public interface Constraint {
+
+    /**
+     * Check if digit may be placed in the empty cell at index
+     */
+    public boolean allows(Grid grid, int index, int digit);
+
+    /**
+     * Remove from candidates any digit this constraint does not allow in the
+     * empty cell at index
+     *
+     * @param candidates
+     *            mask of digits allowed by row, column and nonet
+     * @return mask of digits allowed by this constraint as well
+     */
+    public default int restrict(Grid grid, int index, int candidates) {
+        int allowed = candidates;
+        for (int rest = candidates; rest != 0; rest &= rest - 1) {
+            int digit = Integer.numberOfTrailingZeros(rest) + 1;
+            if (!allows(grid, index, digit)) {
+                allowed &= ~Grid.bit(digit);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Check if a full grid satisfies this constraint
+     */
+    public boolean isSatisfied(Grid grid);
+
+}
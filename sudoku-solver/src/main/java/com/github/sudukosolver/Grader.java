@@ -0,0 +1,948 @@
+package com.github.sudukosolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rate how hard a puzzle is for a person by solving it with the techniques a
+ * person would use, never guessing. Techniques are tried cheapest first and
+ * after any progress the search for a step starts again from the cheapest, so
+ * the hardest technique used is the least a person needs. That technique's
+ * cost is the rating, and the techniques used, one per step, are the trace.
+ * A puzzle these techniques can not finish is not solved and is rated by the
+ * hardest technique used before getting stuck.
+ *
+ * Candidates are kept as a mask per cell. Killer puzzles add the cage
+ * techniques, cage mates being peers of each other.
+ *
+ * A technique working within one unit, or where a line meets a nonet, only
+ * looks again at the units whose candidates changed since it last found
+ * nothing, so the search restarting from the cheapest after each step does
+ * not rescan the whole board with each of them. XY chains are grown over
+ * links between cells of two candidates found once per search.
+ *
+ * Not thread safe, use one instance per thread.
+ *
+ * @author Matt
+ *
+ */
+public class Grader {
+
+    /**
+     * Techniques in the order they are tried, cheapest first. The costs follow
+     * the usual ratings of these techniques, times ten.
+     */
+    public enum Technique {
+        HIDDEN_SINGLE(15),
+        NAKED_SINGLE(23),
+        // Digits of a cage limited to the combinations making its total
+        CAGE_COMBINATION(24),
+        // Digits confined to where a nonet meets a line, removed from the line
+        POINTING(26),
+        // Digits confined to where a line meets a nonet, removed from the nonet
+        CLAIMING(28),
+        // Cage combinations of the rest of a unit left by the cages within it,
+        // or of the cells outside a unit of the cages reaching into it
+        RULE_OF_45(29),
+        NAKED_PAIR(30),
+        X_WING(32),
+        HIDDEN_PAIR(34),
+        NAKED_TRIPLE(36),
+        SWORDFISH(38),
+        HIDDEN_TRIPLE(40),
+        XY_WING(42),
+        XY_CHAIN(65);
+
+        private final int cost;
+
+        private Technique(int cost) {
+            this.cost = cost;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * Rating of a puzzle and the steps taken to solve it
+     */
+    public static final class Grade {
+
+        private final boolean solved;
+        private final Technique hardest;
+        private final List<Technique> trace;
+
+        private Grade(boolean solved, Technique hardest, Technique[] trace) {
+            this.solved = solved;
+            this.hardest = hardest;
+            this.trace = Collections.unmodifiableList(Arrays.asList(trace));
+        }
+
+        /**
+         * Whether the techniques finished the puzzle
+         */
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /**
+         * Costliest technique used, null when the puzzle needed none
+         */
+        public Technique getHardest() {
+            return hardest;
+        }
+
+        /**
+         * Cost of the hardest technique used, 0 when none was needed
+         */
+        public int getRating() {
+            return hardest == null ? 0 : hardest.getCost();
+        }
+
+        /**
+         * Technique of each step in the order taken
+         */
+        public List<Technique> getTrace() {
+            return trace;
+        }
+
+        /**
+         * Number of steps that used technique
+         */
+        public int count(Technique technique) {
+            return Collections.frequency(trace, technique);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s rating %d (%s) in %d steps", solved ? "Solved" : "Stuck", getRating(),
+                    hardest, trace.size());
+        }
+    }
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    // Layout the arrays below are sized for
+    private Layout layout;
+    private int[] value;
+    private int[] candidates;
+    private int empty;
+    // Null unless grading a Killer puzzle
+    private Cages cages;
+    // Cells and digit combinations of the puzzle's cages followed by those
+    // of the 45 rule
+    private int[][] cageCells;
+    private int[][] cageCombinations;
+    // Whether the puzzle was found to have no solution
+    private boolean broken;
+
+    private Technique[] trace = new Technique[128];
+    private int steps;
+    private Technique hardest;
+
+    // Scratch for subsets and fish, by position in a unit or by digit
+    private int[] pool;
+    private int[] masks;
+    private int[] positions;
+    // Scratch for chains, visited only holding digits for cells marked with
+    // the current search
+    private int[] queueCell;
+    private int[] queueDigit;
+    private int[] visited;
+    private int[] visitedBy;
+    private int search;
+    // Cells of two candidates seeing each cell of two candidates and sharing
+    // one, those of cell from linkFrom[cell] to linkFrom[cell + 1]
+    private int[] links;
+    private int[] linkFrom;
+
+    // Attempts at a technique are numbered by clock. Units, or digits, whose
+    // candidates changed at a later attempt than a technique last found
+    // nothing need looking at again by it.
+    private long clock;
+    private long[] changedAt;
+    private long[] digitChangedAt;
+    private final long[] failedAt = new long[TECHNIQUES.length];
+    // Line and nonet units of each segment
+    private int[] segmentLine;
+    private int[] segmentNonet;
+
+    /**
+     * Rate a puzzle from the values on grid, which is not changed
+     */
+    public Grade grade(Grid grid) {
+        start(grid);
+        while (empty > 0 && !broken) {
+            boolean progress = false;
+            for (Technique technique : TECHNIQUES) {
+                clock++;
+                if (apply(technique)) {
+                    progress = true;
+                    break;
+                }
+                failedAt[technique.ordinal()] = clock;
+            }
+            if (!progress) {
+                break;
+            }
+        }
+        return new Grade(empty == 0 && !broken, hardest, Arrays.copyOf(trace, steps));
+    }
+
+    private void start(Grid grid) {
+        if (layout != grid.getLayout()) {
+            layout = grid.getLayout();
+            int cells = layout.cells();
+            value = new int[cells];
+            candidates = new int[cells];
+            pool = new int[layout.size()];
+            masks = new int[layout.size() + 1];
+            positions = new int[layout.size() * layout.size() * 2];
+            queueCell = new int[cells * layout.size()];
+            queueDigit = new int[queueCell.length];
+            visited = new int[cells];
+            visitedBy = new int[cells];
+            links = new int[cells * layout.peers(0).length];
+            linkFrom = new int[cells + 1];
+            changedAt = new long[layout.unitCount()];
+            digitChangedAt = new long[layout.size()];
+            segmentLine = new int[layout.segmentCount()];
+            segmentNonet = new int[layout.segmentCount()];
+            for (int s = 0; s < segmentLine.length; s++) {
+                int[] segment = layout.segment(s);
+                segmentLine[s] = layout.row(segment[0]) == layout.row(segment[1]) ? layout.row(segment[0])
+                        : layout.size() + layout.column(segment[0]);
+                segmentNonet[s] = layout.size() * 2 + layout.nonet(segment[0]);
+            }
+        }
+        // Every unit is new to every technique
+        clock++;
+        Arrays.fill(changedAt, clock);
+        Arrays.fill(digitChangedAt, clock);
+        Cages constraint = grid.getConstraint() instanceof Cages ? (Cages) grid.getConstraint() : null;
+        if (constraint != cages) {
+            cages = constraint;
+            if (cages != null) {
+                ruleOf45();
+            }
+        }
+        broken = false;
+        steps = 0;
+        hardest = null;
+        empty = 0;
+        for (int index = 0; index < value.length; index++) {
+            value[index] = grid.get(index);
+            candidates[index] = value[index] == 0 ? layout.all() : 0;
+            if (value[index] == 0) {
+                empty++;
+            }
+        }
+        for (int index = 0; index < value.length; index++) {
+            if (value[index] != 0) {
+                for (int peer : layout.peers(index)) {
+                    broken |= value[peer] == value[index];
+                    candidates[peer] &= ~Grid.bit(value[index]);
+                }
+                if (cages != null) {
+                    for (int mate : cages.cells(cages.cageOf(index))) {
+                        broken |= mate != index && value[mate] == value[index];
+                        candidates[mate] &= ~Grid.bit(value[index]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Take a step with technique, or every step for singles
+     *
+     * @return whether anything changed or the puzzle was found to be broken
+     */
+    private boolean apply(Technique technique) {
+        switch (technique) {
+        case HIDDEN_SINGLE:
+            return hiddenSingles();
+        case NAKED_SINGLE:
+            return nakedSingles();
+        case CAGE_COMBINATION:
+            return cages != null && cageCombinations(0, cages.count(), technique);
+        case POINTING:
+            return lockedCandidates(true, technique);
+        case CLAIMING:
+            return lockedCandidates(false, technique);
+        case RULE_OF_45:
+            return cages != null && cageCombinations(cages.count(), cageCells.length, technique);
+        case NAKED_PAIR:
+            return nakedSubset(2, technique);
+        case X_WING:
+            return fish(2, technique);
+        case HIDDEN_PAIR:
+            return hiddenSubset(2, technique);
+        case NAKED_TRIPLE:
+            return nakedSubset(3, technique);
+        case SWORDFISH:
+            return fish(3, technique);
+        case HIDDEN_TRIPLE:
+            return hiddenSubset(3, technique);
+        case XY_WING:
+            return xyWing(technique);
+        case XY_CHAIN:
+            return xyChain(technique);
+        default:
+            throw new IllegalArgumentException("Unknown technique " + technique);
+        }
+    }
+
+    private boolean nakedSingles() {
+        boolean found = false;
+        for (int index = 0; index < value.length; index++) {
+            if (value[index] == 0) {
+                int mask = candidates[index];
+                if (mask == 0) {
+                    broken = true;
+                    return true;
+                }
+                if ((mask & (mask - 1)) == 0) {
+                    place(index, Integer.numberOfTrailingZeros(mask) + 1, Technique.NAKED_SINGLE);
+                    found = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean hiddenSingles() {
+        boolean found = false;
+        for (int unit = 0; unit < layout.unitCount(); unit++) {
+            if (!changed(unit, Technique.HIDDEN_SINGLE)) {
+                continue;
+            }
+            int[] cells = layout.unit(unit);
+            int once = 0;
+            int twice = 0;
+            int placed = 0;
+            for (int cell : cells) {
+                if (value[cell] != 0) {
+                    placed |= Grid.bit(value[cell]);
+                } else {
+                    twice |= once & candidates[cell];
+                    once |= candidates[cell];
+                }
+            }
+            if ((once | placed) != layout.all()) {
+                // A digit with nowhere left to go
+                broken = true;
+                return true;
+            }
+            for (int hidden = once & ~twice & ~placed; hidden != 0; hidden &= hidden - 1) {
+                int bit = hidden & -hidden;
+                int cell = find(cells, bit);
+                if (cell < 0) {
+                    // Taken by another hidden digit of this unit
+                    broken = true;
+                    return true;
+                }
+                place(cell, Integer.numberOfTrailingZeros(bit) + 1, Technique.HIDDEN_SINGLE);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private boolean lockedCandidates(boolean pointing, Technique technique) {
+        for (int s = 0; s < layout.segmentCount(); s++) {
+            if (!changed(segmentLine[s], technique) && !changed(segmentNonet[s], technique)) {
+                continue;
+            }
+            int segment = union(layout.segment(s));
+            if (segment == 0) {
+                continue;
+            }
+            int[] from = pointing ? layout.lineRest(s) : layout.nonetRest(s);
+            int confined = segment & ~union(pointing ? layout.nonetRest(s) : layout.lineRest(s));
+            if (confined != 0 && eliminate(from, confined)) {
+                return step(technique);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Limit the cells of each cage in a range to the digits of a combination
+     * making its total which the cells could still take. The check of each
+     * combination lets through some that can not be placed, which only means
+     * fewer digits are removed. A digit every combination needs must be in the
+     * cage, so it goes in the only cell that can take it and in no other cell
+     * of a unit holding the whole cage.
+     */
+    private boolean cageCombinations(int from, int to, Technique technique) {
+        for (int cage = from; cage < to; cage++) {
+            int[] cells = cageCells[cage];
+            int placed = 0;
+            for (int cell : cells) {
+                if (value[cell] != 0) {
+                    placed |= Grid.bit(value[cell]);
+                }
+            }
+            int open = 0;
+            int required = layout.all();
+            for (int combination : cageCombinations[cage]) {
+                if ((combination & placed) != placed) {
+                    continue;
+                }
+                int rest = combination & ~placed;
+                int covered = 0;
+                boolean fits = true;
+                for (int cell : cells) {
+                    if (value[cell] == 0) {
+                        int mask = candidates[cell] & rest;
+                        fits &= mask != 0;
+                        covered |= mask;
+                    }
+                }
+                if (fits && covered == rest) {
+                    open |= rest;
+                    required &= rest;
+                }
+            }
+            boolean changed = eliminate(cells, ~open);
+            for (int rest = required & open; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                int only = -1;
+                int holding = 0;
+                for (int cell : cells) {
+                    if ((candidates[cell] & bit) != 0) {
+                        only = cell;
+                        holding++;
+                    }
+                }
+                if (holding == 1 && candidates[only] != bit) {
+                    keep(only, bit);
+                    changed = true;
+                }
+            }
+            for (int unit = 0; unit < layout.unitCount() && (required & open) != 0; unit++) {
+                if (holds(unit, cells)) {
+                    for (int cell : layout.unit(unit)) {
+                        if (!contains(cells, cell) && (candidates[cell] & required & open) != 0) {
+                            keep(cell, candidates[cell] & ~(required & open));
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            if (changed) {
+                return step(technique);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gather the cages to check, the puzzle's own and the rests of units from
+     * <code>Cages</code>, then the outies of each unit. The cells outside a
+     * unit of the cages reaching into it add up to their totals less the
+     * unit's, which makes a cage when those cells share a unit so can not
+     * repeat a digit.
+     */
+    private void ruleOf45() {
+        List<int[]> cells = new ArrayList<>();
+        List<int[]> combinations = new ArrayList<>();
+        for (int cage = 0; cage < cages.countWithRests(); cage++) {
+            cells.add(cages.cells(cage));
+            combinations.add(cages.combinationsOf(cage));
+        }
+        int unitTotal = layout.size() * (layout.size() + 1) / 2;
+        for (int unit = 0; unit < layout.unitCount(); unit++) {
+            int[] members = layout.unit(unit);
+            boolean[] reaching = new boolean[cages.count()];
+            int total = -unitTotal;
+            List<Integer> outside = new ArrayList<>();
+            for (int cell : members) {
+                int cage = cages.cageOf(cell);
+                if (!reaching[cage]) {
+                    reaching[cage] = true;
+                    total += cages.total(cage);
+                    for (int mate : cages.cells(cage)) {
+                        if (!contains(members, mate)) {
+                            outside.add(mate);
+                        }
+                    }
+                }
+            }
+            int[] outies = new int[outside.size()];
+            for (int i = 0; i < outies.length; i++) {
+                outies[i] = outside.get(i);
+            }
+            if (outies.length > 0 && outies.length < layout.size() && sharesUnit(outies)) {
+                cells.add(outies);
+                combinations.add(Cages.combinations(outies.length, total));
+            }
+        }
+        cageCells = cells.toArray(new int[cells.size()][]);
+        cageCombinations = combinations.toArray(new int[combinations.size()][]);
+    }
+
+    private boolean sharesUnit(int[] cells) {
+        for (int unit = 0; unit < layout.unitCount(); unit++) {
+            if (holds(unit, cells)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether every cell lies in unit
+     */
+    private boolean holds(int unit, int[] cells) {
+        int size = layout.size();
+        for (int cell : cells) {
+            int in = unit < size ? layout.row(cell) : unit < size * 2 ? size + layout.column(cell)
+                    : size * 2 + layout.nonet(cell);
+            if (in != unit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] cells, int index) {
+        for (int cell : cells) {
+            if (cell == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find size cells of a unit with only size candidates between them, which
+     * no other cell of the unit can then take
+     */
+    private boolean nakedSubset(int size, Technique technique) {
+        for (int unit = 0; unit < layout.unitCount(); unit++) {
+            if (!changed(unit, technique)) {
+                continue;
+            }
+            int[] cells = layout.unit(unit);
+            int count = 0;
+            int open = 0;
+            for (int i = 0; i < cells.length; i++) {
+                int bits = Integer.bitCount(candidates[cells[i]]);
+                if (bits > 0) {
+                    open++;
+                    if (bits <= size) {
+                        pool[count++] = i;
+                    }
+                }
+            }
+            if (open > size && nakedSubset(cells, count, 0, size, 0, 0)) {
+                return step(technique);
+            }
+        }
+        return false;
+    }
+
+    private boolean nakedSubset(int[] cells, int count, int first, int left, int digits, int chosen) {
+        if (left == 0) {
+            if (Integer.bitCount(digits) != Integer.bitCount(chosen)) {
+                return false;
+            }
+            boolean changed = false;
+            for (int i = 0; i < cells.length; i++) {
+                if ((chosen & 1 << i) == 0 && (candidates[cells[i]] & digits) != 0) {
+                    keep(cells[i], candidates[cells[i]] & ~digits);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+        for (int p = first; p <= count - left; p++) {
+            int i = pool[p];
+            int union = digits | candidates[cells[i]];
+            if (Integer.bitCount(union) <= Integer.bitCount(chosen) + left
+                    && nakedSubset(cells, count, p + 1, left - 1, union, chosen | 1 << i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find size digits of a unit with only size cells between them, which can
+     * then take no other digit
+     */
+    private boolean hiddenSubset(int size, Technique technique) {
+        for (int unit = 0; unit < layout.unitCount(); unit++) {
+            if (!changed(unit, technique)) {
+                continue;
+            }
+            int[] cells = layout.unit(unit);
+            Arrays.fill(masks, 0);
+            for (int i = 0; i < cells.length; i++) {
+                for (int rest = candidates[cells[i]]; rest != 0; rest &= rest - 1) {
+                    masks[Integer.numberOfTrailingZeros(rest)] |= 1 << i;
+                }
+            }
+            int count = 0;
+            int open = 0;
+            for (int digit = 0; digit < layout.size(); digit++) {
+                int bits = Integer.bitCount(masks[digit]);
+                if (bits > 0) {
+                    open++;
+                    if (bits <= size) {
+                        pool[count++] = digit;
+                    }
+                }
+            }
+            if (open > size && hiddenSubset(cells, count, 0, size, 0, 0)) {
+                return step(technique);
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSubset(int[] cells, int count, int first, int left, int positions, int digits) {
+        if (left == 0) {
+            if (Integer.bitCount(positions) != Integer.bitCount(digits)) {
+                return false;
+            }
+            boolean changed = false;
+            for (int rest = positions; rest != 0; rest &= rest - 1) {
+                int cell = cells[Integer.numberOfTrailingZeros(rest)];
+                if ((candidates[cell] & ~digits) != 0) {
+                    keep(cell, candidates[cell] & digits);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+        for (int p = first; p <= count - left; p++) {
+            int digit = pool[p];
+            int union = positions | masks[digit];
+            if (Integer.bitCount(union) <= Integer.bitCount(digits) + left
+                    && hiddenSubset(cells, count, p + 1, left - 1, union, digits | 1 << digit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find size rows holding a digit in only size columns between them, or
+     * size columns in only size rows, so no other cell of those columns, or
+     * rows, can take the digit
+     */
+    private boolean fish(int size, Technique technique) {
+        int n = layout.size();
+        // Columns of each digit in each row then rows of it in each column
+        Arrays.fill(positions, 0);
+        for (int cell = 0; cell < value.length; cell++) {
+            int row = layout.row(cell);
+            int column = layout.column(cell);
+            for (int rest = candidates[cell]; rest != 0; rest &= rest - 1) {
+                int digit = Integer.numberOfTrailingZeros(rest);
+                positions[digit * n * 2 + row] |= 1 << column;
+                positions[digit * n * 2 + n + column] |= 1 << row;
+            }
+        }
+        for (int digit = 0; digit < n; digit++) {
+            if (!digitChanged(digit, technique)) {
+                continue;
+            }
+            int bit = 1 << digit;
+            for (int base = 0; base <= n; base += n) {
+                int count = 0;
+                for (int line = 0; line < n; line++) {
+                    int positions = this.positions[digit * n * 2 + base + line];
+                    int bits = Integer.bitCount(positions);
+                    if (bits >= 2 && bits <= size) {
+                        masks[count] = positions;
+                        pool[count++] = line;
+                    }
+                }
+                if (fish(bit, base, count, 0, size, 0, 0)) {
+                    return step(technique);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean fish(int bit, int base, int count, int first, int left, int cover, int lines) {
+        if (left == 0) {
+            if (Integer.bitCount(cover) != Integer.bitCount(lines)) {
+                return false;
+            }
+            // Lines crossing the chosen ones
+            int cross = base == 0 ? layout.size() : 0;
+            boolean changed = false;
+            for (int rest = cover; rest != 0; rest &= rest - 1) {
+                for (int cell : layout.unit(cross + Integer.numberOfTrailingZeros(rest))) {
+                    int line = base == 0 ? layout.row(cell) : layout.column(cell);
+                    if ((lines & 1 << line) == 0 && (candidates[cell] & bit) != 0) {
+                        keep(cell, candidates[cell] & ~bit);
+                        changed = true;
+                    }
+                }
+            }
+            return changed;
+        }
+        for (int p = first; p <= count - left; p++) {
+            int union = cover | masks[p];
+            if (Integer.bitCount(union) <= Integer.bitCount(lines) + left
+                    && fish(bit, base, count, p + 1, left - 1, union, lines | 1 << pool[p])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A cell of two candidates ab sees a cell of ac and one of bc, so one of
+     * those two must be c and no cell seeing both can be
+     */
+    private boolean xyWing(Technique technique) {
+        for (int pivot = 0; pivot < value.length; pivot++) {
+            int mask = candidates[pivot];
+            if (Integer.bitCount(mask) != 2) {
+                continue;
+            }
+            for (int first : layout.peers(pivot)) {
+                int wing = candidates[first];
+                int shared = wing & mask;
+                if (Integer.bitCount(wing) != 2 || Integer.bitCount(shared) != 1) {
+                    continue;
+                }
+                int c = wing & ~shared;
+                int other = (mask & ~shared) | c;
+                for (int second : layout.peers(pivot)) {
+                    if (candidates[second] == other && eliminateSeenByBoth(first, second, c)) {
+                        return step(technique);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A chain of cells of two candidates, each seeing the last and sharing
+     * the digit the last must take if the first is not z, ending at a cell
+     * left with z. Either the first or the last cell is z, so no cell seeing
+     * both can be.
+     */
+    private boolean xyChain(Technique technique) {
+        int count = 0;
+        for (int cell = 0; cell < value.length; cell++) {
+            linkFrom[cell] = count;
+            int mask = candidates[cell];
+            if (Integer.bitCount(mask) == 2) {
+                for (int peer : layout.peers(cell)) {
+                    if (Integer.bitCount(candidates[peer]) == 2 && (candidates[peer] & mask) != 0) {
+                        links[count++] = peer;
+                    }
+                }
+            }
+        }
+        linkFrom[value.length] = count;
+        for (int start = 0; start < value.length; start++) {
+            int mask = candidates[start];
+            if (linkFrom[start] == linkFrom[start + 1]) {
+                continue;
+            }
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int z = rest & -rest;
+                search++;
+                int head = 0;
+                int tail = 0;
+                queueCell[tail] = start;
+                queueDigit[tail++] = mask & ~z;
+                visitedBy[start] = search;
+                visited[start] = mask;
+                while (head < tail) {
+                    int cell = queueCell[head];
+                    int digit = queueDigit[head++];
+                    for (int link = linkFrom[cell]; link < linkFrom[cell + 1]; link++) {
+                        int next = links[link];
+                        int pair = candidates[next];
+                        if ((pair & digit) == 0) {
+                            continue;
+                        }
+                        int taken = pair & ~digit;
+                        if (visitedBy[next] != search) {
+                            visitedBy[next] = search;
+                            visited[next] = 0;
+                        }
+                        if ((visited[next] & taken) != 0) {
+                            continue;
+                        }
+                        visited[next] |= taken;
+                        if (taken == z && eliminateSeenByBoth(start, next, z)) {
+                            return step(technique);
+                        }
+                        queueCell[tail] = next;
+                        queueDigit[tail++] = taken;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean eliminateSeenByBoth(int a, int b, int bits) {
+        boolean changed = false;
+        for (int cell : layout.peers(a)) {
+            if (cell != b && (candidates[cell] & bits) != 0 && sees(cell, b)) {
+                keep(cell, candidates[cell] & ~bits);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean sees(int a, int b) {
+        return a != b && (layout.row(a) == layout.row(b) || layout.column(a) == layout.column(b)
+                || layout.nonet(a) == layout.nonet(b));
+    }
+
+    private void place(int index, int digit, Technique technique) {
+        int bit = Grid.bit(digit);
+        value[index] = digit;
+        keep(index, 0);
+        empty--;
+        for (int peer : layout.peers(index)) {
+            remove(peer, bit);
+        }
+        if (cages != null) {
+            for (int mate : cages.cells(cages.cageOf(index))) {
+                remove(mate, bit);
+            }
+        }
+        step(technique);
+    }
+
+    private void remove(int cell, int bits) {
+        if ((candidates[cell] & bits) != 0) {
+            keep(cell, candidates[cell] & ~bits);
+        }
+    }
+
+    /**
+     * Narrow the candidates of cell to mask, marking its units and the digits
+     * it lost as changed at this attempt
+     */
+    private void keep(int cell, int mask) {
+        int size = layout.size();
+        for (int lost = candidates[cell] & ~mask; lost != 0; lost &= lost - 1) {
+            digitChangedAt[Integer.numberOfTrailingZeros(lost)] = clock;
+        }
+        candidates[cell] = mask;
+        changedAt[layout.row(cell)] = clock;
+        changedAt[size + layout.column(cell)] = clock;
+        changedAt[size * 2 + layout.nonet(cell)] = clock;
+    }
+
+    /**
+     * Whether the candidates of digit, from 0, changed since technique last
+     * found nothing
+     */
+    private boolean digitChanged(int digit, Technique technique) {
+        return digitChangedAt[digit] > failedAt[technique.ordinal()];
+    }
+
+    /**
+     * Whether unit changed since technique last found nothing
+     */
+    private boolean changed(int unit, Technique technique) {
+        return changedAt[unit] > failedAt[technique.ordinal()];
+    }
+
+    private boolean step(Technique technique) {
+        if (steps == trace.length) {
+            trace = Arrays.copyOf(trace, steps * 2);
+        }
+        trace[steps++] = technique;
+        if (hardest == null || technique.getCost() > hardest.getCost()) {
+            hardest = technique;
+        }
+        return true;
+    }
+
+    private int find(int[] cells, int bit) {
+        for (int cell : cells) {
+            if ((candidates[cell] & bit) != 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private int union(int[] cells) {
+        int union = 0;
+        for (int cell : cells) {
+            union |= candidates[cell];
+        }
+        return union;
+    }
+
+    private boolean eliminate(int[] cells, int digits) {
+        boolean changed = false;
+        for (int cell : cells) {
+            if ((candidates[cell] & digits) != 0) {
+                keep(cell, candidates[cell] & ~digits);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Rate every puzzle of a file in the LINE format, writing each as its
+     * line, whether it was solved, its rating and its hardest technique. A
+     * summary is written to standard error.
+     *
+     * @param args
+     *            path to the puzzles
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Must specify file path");
+        }
+        Grader grader = new Grader();
+        long puzzles = 0;
+        long solved = 0;
+        long start = System.nanoTime();
+        try (PuzzleReader in = PuzzleReader.open(Paths.get(args[0]), PuzzleReader.Format.LINE);
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII),
+                        1 << 16)) {
+            Grid grid;
+            while ((grid = in.next()) != null) {
+                Grade grade = grader.grade(grid);
+                puzzles++;
+                if (grade.isSolved()) {
+                    solved++;
+                }
+                out.write(grid.toLine());
+                out.write(grade.isSolved() ? ",true," : ",false,");
+                out.write(Integer.toString(grade.getRating()));
+                out.write(',');
+                out.write(String.valueOf(grade.getHardest()));
+                out.write('\n');
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Rated %d puzzles, %d solved by logic, in %.3f s, %.0f puzzles/s%n", puzzles, solved,
+                seconds, puzzles / seconds);
+    }
+}
@@ -0,0 +1,348 @@
+package com.github.sudukosolver;
+
+import java.util.Arrays;
+
+/**
+ * Flat representation of a Sudoku board. Cell values are held in a single int
+ * array indexed by <code>row * N + column</code> and the digits used in each
+ * row, column and nonet are held as N bit masks, so a placement can be checked
+ * in constant time without allocating. Bit 0 of a mask represents digit 1.
+ *
+ * Row, column, nonet and peer lookups are tables of the grid's
+ * <code>Layout</code>, shared by every grid of the same size.
+ *
+ * @author Matt
+ *
+ */
+public class Grid {
+
+    private final Layout layout;
+    // Tables of the layout, held here for the hot path
+    private final int[] rowOf;
+    private final int[] columnOf;
+    private final int[] nonetOf;
+    private final int all;
+
+    private final int[] values;
+    private final boolean[] given;
+    private final int[] rows;
+    private final int[] columns;
+    private final int[] nonets;
+    // Extra rules on top of row, column and nonet, may be null
+    private final Constraint constraint;
+
+    // How many values have been placed on this grid by a solver
+    private long placements;
+
+    /**
+     * Empty 9x9 grid
+     */
+    public Grid() {
+        this(Layout.CLASSIC, null);
+    }
+
+    /**
+     * Empty 9x9 grid with extra rules
+     */
+    public Grid(Constraint constraint) {
+        this(Layout.CLASSIC, constraint);
+    }
+
+    public Grid(Layout layout, Constraint constraint) {
+        this.layout = layout;
+        this.rowOf = layout.row;
+        this.columnOf = layout.column;
+        this.nonetOf = layout.nonet;
+        this.all = layout.all();
+        this.values = new int[layout.cells()];
+        this.given = new boolean[layout.cells()];
+        this.rows = new int[layout.size()];
+        this.columns = new int[layout.size()];
+        this.nonets = new int[layout.size()];
+        this.constraint = constraint;
+    }
+
+    /**
+     * Copy another grid, the copy shares the constraint of the original but
+     * none of its state.
+     *
+     * @param other
+     *            grid to copy
+     */
+    public Grid(Grid other) {
+        this.layout = other.layout;
+        this.rowOf = other.rowOf;
+        this.columnOf = other.columnOf;
+        this.nonetOf = other.nonetOf;
+        this.all = other.all;
+        this.values = other.values.clone();
+        this.given = other.given.clone();
+        this.rows = other.rows.clone();
+        this.columns = other.columns.clone();
+        this.nonets = other.nonets.clone();
+        this.constraint = other.constraint;
+    }
+
+    /**
+     * Create a grid from a single line with one character per cell, row by
+     * row. Digits 1-9 then A-Z are given values, 0 or '.' means an unknown
+     * value. The size of the board comes from the length of the line, 16, 81,
+     * 256 or 625 characters, any other length is read as a 9x9 board.
+     *
+     * @param line
+     *            cells of the board, any after the last cell are ignored
+     * @return grid holding the values of line
+     * @throws IllegalArgumentException
+     *             when line is too short or holds another character
+     */
+    public static Grid parse(CharSequence line) {
+        Layout layout = Layout.ofCells(line.length());
+        return parse(line, layout == null ? Layout.CLASSIC : layout);
+    }
+
+    /**
+     * Create a grid of the given layout from a single line with one character
+     * per cell, as for <code>parse(CharSequence)</code>
+     */
+    public static Grid parse(CharSequence line, Layout layout) {
+        int cells = layout.cells();
+        if (line.length() < cells) {
+            throw new IllegalArgumentException("Expected " + cells + " cells but was " + line.length());
+        }
+        Grid grid = new Grid(layout, null);
+        for (int i = 0; i < cells; i++) {
+            char c = line.charAt(i);
+            int digit = Layout.fromChar(c);
+            if (digit < 0 || digit > layout.size()) {
+                throw new IllegalArgumentException("Invalid cell '" + c + "' at " + i);
+            }
+            grid.values[i] = digit;
+            grid.given[i] = digit != 0;
+        }
+        // Build the masks once rather than per value
+        grid.reset();
+        return grid;
+    }
+
+    public static int bit(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public boolean isEmpty(int index) {
+        return values[index] == 0;
+    }
+
+    public boolean isGiven(int index) {
+        return given[index];
+    }
+
+    public void setGiven(int index, boolean isGiven) {
+        given[index] = isGiven;
+    }
+
+    public Constraint getConstraint() {
+        return constraint;
+    }
+
+    /**
+     * Set a value that was part of the puzzle as loaded, it will survive
+     * <code>reset()</code>
+     */
+    public void give(int index, int digit) {
+        set(index, digit);
+        given[index] = digit != 0;
+    }
+
+    /**
+     * Replace every value on the board, each value other than 0 being given.
+     * The masks are built once for the whole board rather than per value.
+     *
+     * @param digits
+     *            value of each cell, 0 for unknown
+     */
+    public void load(int[] digits) {
+        Arrays.fill(rows, 0);
+        Arrays.fill(columns, 0);
+        Arrays.fill(nonets, 0);
+        for (int i = 0; i < values.length; i++) {
+            int digit = digits[i];
+            values[i] = digit;
+            given[i] = digit != 0;
+            if (digit != 0) {
+                int b = bit(digit);
+                rows[rowOf[i]] |= b;
+                columns[columnOf[i]] |= b;
+                nonets[nonetOf[i]] |= b;
+            }
+        }
+    }
+
+    /**
+     * Set any value, including 0 or one that conflicts with a peer. The masks
+     * of the affected units are rebuilt so this is safe but not the fast path,
+     * solvers should use <code>place</code> and <code>clear</code>.
+     */
+    public void set(int index, int digit) {
+        values[index] = digit;
+        int size = layout.size();
+        rows[rowOf[index]] = unitMask(rowOf[index]);
+        columns[columnOf[index]] = unitMask(size + columnOf[index]);
+        nonets[nonetOf[index]] = unitMask(size * 2 + nonetOf[index]);
+    }
+
+    /**
+     * Digits that may go in the cell at index according to its row, column
+     * and nonet. Any constraint is not applied.
+     *
+     * @return mask of digits not used by a peer
+     */
+    public int candidates(int index) {
+        return ~(rows[rowOf[index]] | columns[columnOf[index]] | nonets[nonetOf[index]]) & all;
+    }
+
+    /**
+     * Digits that may go in the empty cell at index according to every rule,
+     * including any constraint.
+     *
+     * @return mask of digits that can be placed
+     */
+    public int allowed(int index) {
+        int candidates = candidates(index);
+        return constraint == null ? candidates : constraint.restrict(this, index, candidates);
+    }
+
+    /**
+     * Digits already used by a unit, see <code>unit</code> for numbering
+     */
+    public int used(int unit) {
+        int size = layout.size();
+        if (unit < size) {
+            return rows[unit];
+        }
+        return unit < size * 2 ? columns[unit - size] : nonets[unit - size * 2];
+    }
+
+    /**
+     * Check if digit can be placed in the empty cell at index without breaking
+     * a rule.
+     */
+    public boolean canPlace(int index, int digit) {
+        return ((rows[rowOf[index]] | columns[columnOf[index]] | nonets[nonetOf[index]]) & bit(digit)) == 0
+                && (constraint == null || constraint.allows(this, index, digit));
+    }
+
+    /**
+     * Place digit in the empty cell at index, the caller is expected to have
+     * checked <code>canPlace</code>.
+     */
+    public void place(int index, int digit) {
+        int b = bit(digit);
+        values[index] = digit;
+        rows[rowOf[index]] |= b;
+        columns[columnOf[index]] |= b;
+        nonets[nonetOf[index]] |= b;
+        placements++;
+    }
+
+    /**
+     * Remove a value previously added with <code>place</code>
+     */
+    public void clear(int index) {
+        int b = ~bit(values[index]);
+        values[index] = 0;
+        rows[rowOf[index]] &= b;
+        columns[columnOf[index]] &= b;
+        nonets[nonetOf[index]] &= b;
+    }
+
+    /**
+     * Check the cell at index holds a value that no peer also holds
+     */
+    public boolean isValid(int index) {
+        int value = values[index];
+        if (value == 0) {
+            return false;
+        }
+        for (int peer : layout.peers(index)) {
+            if (values[peer] == value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A solved grid has values 1..N in each column, row and nonet only once and
+     * satisfies its constraint.
+     */
+    public boolean isSolved() {
+        for (int u = 0; u < layout.unitCount(); u++) {
+            int mask = 0;
+            for (int index : layout.unit(u)) {
+                if (values[index] == 0) {
+                    return false;
+                }
+                mask |= bit(values[index]);
+            }
+            if (mask != all) {
+                return false;
+            }
+        }
+        return constraint == null || constraint.isSatisfied(this);
+    }
+
+    /**
+     * Remove every value which was not given
+     */
+    public void reset() {
+        for (int i = 0; i < values.length; i++) {
+            if (!given[i]) {
+                values[i] = 0;
+            }
+        }
+        int size = layout.size();
+        for (int i = 0; i < size; i++) {
+            rows[i] = unitMask(i);
+            columns[i] = unitMask(size + i);
+            nonets[i] = unitMask(size * 2 + i);
+        }
+    }
+
+    /**
+     * Values of this grid as a single line of one character per cell, 0 for
+     * unknown, in the format read by <code>parse</code>
+     */
+    public String toLine() {
+        char[] line = new char[values.length];
+        for (int i = 0; i < values.length; i++) {
+            line[i] = Layout.toChar(values[i]);
+        }
+        return new String(line);
+    }
+
+    public long getPlacements() {
+        return placements;
+    }
+
+    public void resetPlacements() {
+        placements = 0;
+    }
+
+    private int unitMask(int unit) {
+        int mask = 0;
+        for (int index : layout.unit(unit)) {
+            if (values[index] != 0) {
+                mask |= bit(values[index]);
+            }
+        }
+        return mask;
+    }
+}
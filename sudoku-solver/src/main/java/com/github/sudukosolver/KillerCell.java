@@ -1,24 +1,16 @@
 package com.github.sudukosolver;
 
-import java.util.ArrayList;
-import java.util.List;
-
 class KillerCell extends Cell {
 
-    private List<KillerCell> cage;
-    private int cageTotal;
-
-    public KillerCell(int x, int y, int value) {
-        super(x, y, value);
-        cage = new ArrayList<>();
-    }
+    private final Cages cages;
 
-    public void setTotal(int total) {
-        this.cageTotal = total;
+    public KillerCell(Grid grid, int index, Cages cages) {
+        super(grid, index);
+        this.cages = cages;
     }
 
-    public void setCage(List<KillerCell> cage) {
-        this.cage = cage;
+    public int getTotal() {
+        return cages.total(cages.cageOf(index));
     }
 
     @Override
@@ -27,8 +19,7 @@ class KillerCell extends Cell {
     }
 
     private boolean isCageValid() {
-        return cage.stream().anyMatch(c -> c.getValue() == 0)
-                || cageTotal == cage.stream().mapToInt(c -> c.getValue()).sum();
+        return cages.isCageValid(grid, cages.cageOf(index));
     }
 
     @Override
@@ -0,0 +1,266 @@
+package com.github.sudukosolver;
+
+/**
+ * Shape of a Sudoku board of size N, where N is a square such as 4, 9, 16 or
+ * 25 and each nonet is a box of sqrt(N) by sqrt(N) cells. Cells are indexed by
+ * <code>row * N + column</code>.
+ *
+ * Row, column, nonet, unit and peer tables are built once per size and shared
+ * by every grid of that size. Digits are held as bits of an int so N may be at
+ * most 25.
+ *
+ * @author Matt
+ *
+ */
+public final class Layout {
+
+    private static final int MAX_BOX = 5;
+    private static final Layout[] LAYOUTS = new Layout[MAX_BOX + 1];
+
+    static {
+        for (int box = 2; box <= MAX_BOX; box++) {
+            LAYOUTS[box] = new Layout(box);
+        }
+    }
+
+    /**
+     * The standard 9x9 board
+     */
+    public static final Layout CLASSIC = of(9);
+
+    private final int box;
+    private final int size;
+    private final int cells;
+    private final int all;
+
+    final int[] row;
+    final int[] column;
+    final int[] nonet;
+    // Units 0..N-1 are rows, N..2N-1 columns and 2N..3N-1 nonets
+    private final int[][] units;
+    private final int[][] peers;
+
+    // Where each nonet meets a row or column, the rest of that row or column
+    // outside of the nonet, and the rest of the nonet outside of it
+    private final int[][] segments;
+    private final int[][] lineRests;
+    private final int[][] nonetRests;
+
+    private Layout(int box) {
+        this.box = box;
+        this.size = box * box;
+        this.cells = size * size;
+        this.all = (1 << size) - 1;
+        this.row = new int[cells];
+        this.column = new int[cells];
+        this.nonet = new int[cells];
+        this.units = new int[size * 3][size];
+        this.peers = new int[cells][];
+
+        int[] filled = new int[size * 3];
+        for (int i = 0; i < cells; i++) {
+            row[i] = i / size;
+            column[i] = i % size;
+            // Index will move 1 value every box iterations across either axis
+            nonet[i] = (column[i] / box) + ((row[i] / box) * box);
+            units[row[i]][filled[row[i]]++] = i;
+            units[size + column[i]][filled[size + column[i]]++] = i;
+            units[size * 2 + nonet[i]][filled[size * 2 + nonet[i]]++] = i;
+        }
+        int peerCount = (size - 1) * 2 + (box - 1) * (box - 1);
+        for (int i = 0; i < cells; i++) {
+            peers[i] = new int[peerCount];
+            int n = 0;
+            for (int j = 0; j < cells; j++) {
+                if (j != i && (row[i] == row[j] || column[i] == column[j] || nonet[i] == nonet[j])) {
+                    peers[i][n++] = j;
+                }
+            }
+        }
+
+        int count = size * box * 2;
+        segments = new int[count][];
+        lineRests = new int[count][];
+        nonetRests = new int[count][];
+        int s = 0;
+        for (int n = 0; n < size; n++) {
+            int[] nonetCells = units[size * 2 + n];
+            for (int k = 0; k < box; k++) {
+                addSegment(s++, nonetCells, units[row[nonetCells[k * box]]]);
+                addSegment(s++, nonetCells, units[size + column[nonetCells[k]]]);
+            }
+        }
+    }
+
+    private void addSegment(int s, int[] nonetCells, int[] line) {
+        segments[s] = new int[box];
+        lineRests[s] = new int[size - box];
+        nonetRests[s] = new int[size - box];
+        int inBoth = 0, lineOnly = 0, nonetOnly = 0;
+        for (int cell : line) {
+            if (nonet[cell] == nonet[nonetCells[0]]) {
+                segments[s][inBoth++] = cell;
+            } else {
+                lineRests[s][lineOnly++] = cell;
+            }
+        }
+        for (int cell : nonetCells) {
+            if (!contains(line, cell)) {
+                nonetRests[s][nonetOnly++] = cell;
+            }
+        }
+    }
+
+    private static boolean contains(int[] cells, int cell) {
+        for (int c : cells) {
+            if (c == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Layout of a board with size rows, columns and digits
+     *
+     * @param size
+     *            4, 9, 16 or 25
+     * @throws IllegalArgumentException
+     *             for any other size
+     */
+    public static Layout of(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (box * box != size || box < 2 || box > MAX_BOX) {
+            throw new IllegalArgumentException("Unsupported board size " + size);
+        }
+        return LAYOUTS[box];
+    }
+
+    /**
+     * Layout of a board with the given number of cells, or null if there is
+     * none
+     */
+    public static Layout ofCells(int cells) {
+        for (int box = 2; box <= MAX_BOX; box++) {
+            if (LAYOUTS[box].cells == cells) {
+                return LAYOUTS[box];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of rows, columns and nonets and the highest digit
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Width and height of a nonet
+     */
+    public int boxSize() {
+        return box;
+    }
+
+    public int cells() {
+        return cells;
+    }
+
+    /**
+     * Mask with a bit set for every digit 1..size
+     */
+    public int all() {
+        return all;
+    }
+
+    public int row(int index) {
+        return row[index];
+    }
+
+    public int column(int index) {
+        return column[index];
+    }
+
+    public int nonet(int index) {
+        return nonet[index];
+    }
+
+    /**
+     * Cells sharing a row, column or nonet with the cell at index. The returned
+     * array is shared and must not be modified.
+     */
+    public int[] peers(int index) {
+        return peers[index];
+    }
+
+    /**
+     * Cells of a unit, rows first then columns then nonets. The returned array
+     * is shared and must not be modified.
+     */
+    public int[] unit(int unit) {
+        return units[unit];
+    }
+
+    public int unitCount() {
+        return units.length;
+    }
+
+    /**
+     * Number of places a nonet meets a row or column
+     */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Cells where a nonet meets a row or column. The returned array is shared
+     * and must not be modified.
+     */
+    public int[] segment(int segment) {
+        return segments[segment];
+    }
+
+    /**
+     * Cells of the row or column of a segment outside of its nonet
+     */
+    public int[] lineRest(int segment) {
+        return lineRests[segment];
+    }
+
+    /**
+     * Cells of the nonet of a segment outside of its row or column
+     */
+    public int[] nonetRest(int segment) {
+        return nonetRests[segment];
+    }
+
+    /**
+     * Character used for digit in single line formats, 1-9 then A-Z
+     */
+    public static char toChar(int digit) {
+        return digit < 10 ? (char) ('0' + digit) : (char) ('A' + digit - 10);
+    }
+
+    /**
+     * Digit of a character in single line formats, 0 for '0' or '.' and -1 for
+     * anything that is not a digit
+     */
+    public static int fromChar(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        return c == '.' ? 0 : -1;
+    }
+
+    @Override
+    public String toString() {
+        return size + "x" + size;
+    }
+}
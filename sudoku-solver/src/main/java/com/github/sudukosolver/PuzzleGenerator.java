@@ -0,0 +1,490 @@
+package com.github.sudukosolver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.sudukosolver.solver.PropagatingSolver;
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Random puzzles with exactly one solution and a difficulty in a requested
+ * band, classic or Killer.
+ *
+ * A full grid is made by placing a random permutation in each nonet on the
+ * diagonal, which do not constrain one another, and solving the rest. A
+ * classic puzzle then has clues removed in random order, each removal kept
+ * only while the solution stays unique. A Killer puzzle has no clues, the full
+ * grid is cut into random connected cages of distinct digits and while the
+ * cages allow another solution a cell where it differs is split into a cage of
+ * its own. A cell whose cage stays connected without it is split off when
+ * there is one, otherwise each connected part left of its cage becomes a cage.
+ *
+ * An instance holds its own random numbers and solver so must not be shared
+ * between threads, <code>generate</code> runs one on each thread.
+ *
+ * @author Matt
+ *
+ */
+public class PuzzleGenerator {
+
+    /**
+     * Band of the guesses <code>PropagatingSolver</code> needs to solve a
+     * puzzle, with separate bands for Killer puzzles which need far more, and
+     * of the percentage of cells of a classic puzzle that are clues
+     */
+    public enum Difficulty {
+        EASY(0, 0, 0, 10, 37, 100),
+        MEDIUM(0, 0, 11, 50, 0, 36),
+        HARD(1, 4, 51, 250, 0, 100),
+        EXPERT(5, Long.MAX_VALUE, 251, Long.MAX_VALUE, 0, 100);
+
+        private final long minGuesses;
+        private final long maxGuesses;
+        private final long minKillerGuesses;
+        private final long maxKillerGuesses;
+        private final int minCluePercent;
+        private final int maxCluePercent;
+
+        private Difficulty(long minGuesses, long maxGuesses, long minKillerGuesses, long maxKillerGuesses,
+                int minCluePercent, int maxCluePercent) {
+            this.minGuesses = minGuesses;
+            this.maxGuesses = maxGuesses;
+            this.minKillerGuesses = minKillerGuesses;
+            this.maxKillerGuesses = maxKillerGuesses;
+            this.minCluePercent = minCluePercent;
+            this.maxCluePercent = maxCluePercent;
+        }
+    }
+
+    // Killer cages are grown to 2 up to this many cells
+    private static final int MAX_CAGE = 4;
+
+    private final Layout layout;
+    private final SplittableRandom random;
+    private final PropagatingSolver solver = new PropagatingSolver();
+    private final SolveMetrics metrics = new SolveMetrics();
+
+    /**
+     * @param layout
+     *            size of the classic puzzles, Killer puzzles are always 9x9
+     * @param random
+     *            source of the random choices, not shared with other threads
+     */
+    public PuzzleGenerator(Layout layout, SplittableRandom random) {
+        this.layout = layout;
+        this.random = random;
+    }
+
+    /**
+     * A random solved grid
+     */
+    public Grid fullGrid() {
+        return fullGrid(layout);
+    }
+
+    private Grid fullGrid(Layout layout) {
+        int box = layout.boxSize();
+        int[] digits = new int[layout.size()];
+        while (true) {
+            Grid grid = new Grid(layout, null);
+            for (int b = 0; b < box; b++) {
+                shuffle(digits, layout.size());
+                int origin = b * box * layout.size() + b * box;
+                for (int i = 0; i < digits.length; i++) {
+                    grid.place(origin + i / box * layout.size() + i % box, digits[i] + 1);
+                }
+            }
+            // The diagonal nonets may leave a 4x4 board with no solution
+            if (solver.solve(grid)) {
+                return grid;
+            }
+        }
+    }
+
+    /**
+     * A classic puzzle with one solution in the difficulty band, the givens of
+     * the grid returned being its clues
+     */
+    public Grid classic(Difficulty difficulty) {
+        while (true) {
+            Grid solution = fullGrid();
+            Grid puzzle = new Grid(solution);
+            int[] order = shuffle(new int[layout.cells()], layout.cells());
+            List<Integer> removed = new ArrayList<>();
+            for (int cell : order) {
+                int digit = puzzle.get(cell);
+                puzzle.clear(cell);
+                if (solver.count(puzzle, 2) == 1) {
+                    removed.add(cell);
+                } else {
+                    puzzle.place(cell, digit);
+                }
+            }
+            // Clues go back at random while too hard or too few
+            int minClues = (layout.cells() * difficulty.minCluePercent + 99) / 100;
+            int maxClues = layout.cells() * difficulty.maxCluePercent / 100;
+            int clues = layout.cells() - removed.size();
+            long guesses = guesses(puzzle);
+            while (!removed.isEmpty() && (guesses > difficulty.maxGuesses || clues < minClues)) {
+                int cell = removed.remove(random.nextInt(removed.size()));
+                puzzle.place(cell, solution.get(cell));
+                clues++;
+                guesses = guesses(puzzle);
+            }
+            if (guesses >= difficulty.minGuesses && guesses <= difficulty.maxGuesses && clues >= minClues
+                    && clues <= maxClues) {
+                return given(puzzle);
+            }
+        }
+    }
+
+    /**
+     * A Killer puzzle with one solution in the difficulty band, the grid
+     * returned being empty with <code>Cages</code> as its constraint
+     */
+    public Grid killer(Difficulty difficulty) {
+        while (true) {
+            Grid solution = fullGrid(Layout.CLASSIC);
+            int[] cageOf = cage(solution);
+            int count = 0;
+            for (int cage : cageOf) {
+                count = Math.max(count, cage + 1);
+            }
+            // A cell differing between solutions is split into its own cage
+            // until only one solution is left
+            Grid puzzle;
+            int[] differing;
+            while ((differing = differing(puzzle = new Grid(Layout.CLASSIC, cages(solution, cageOf)),
+                    solution)).length > 0) {
+                count = split(cageOf, differing, count);
+            }
+            long guesses = guesses(puzzle);
+            if (guesses >= difficulty.minKillerGuesses && guesses <= difficulty.maxKillerGuesses) {
+                return puzzle;
+            }
+        }
+    }
+
+    /**
+     * The cells whose values differ between solution and another solution of
+     * puzzle, none when solution is the only one
+     */
+    private static int[] differing(Grid puzzle, Grid solution) {
+        Iterator<Grid> solutions = new PropagatingSolver().solutions(puzzle);
+        for (int i = 0; i < 2 && solutions.hasNext(); i++) {
+            Grid other = solutions.next();
+            int[] cells = new int[other.getLayout().cells()];
+            int found = 0;
+            for (int index = 0; index < cells.length; index++) {
+                if (other.get(index) != solution.get(index)) {
+                    cells[found++] = index;
+                }
+            }
+            if (found > 0) {
+                return Arrays.copyOf(cells, found);
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Split a random one of the differing cells into a cage of its own,
+     * preferring one whose cage stays connected without it. When there is none
+     * each connected part left of the cage becomes a cage of its own too.
+     *
+     * @return number of cages after the split
+     */
+    private int split(int[] cageOf, int[] differing, int count) {
+        int offset = random.nextInt(differing.length);
+        int cell = differing[offset];
+        for (int i = 0; i < differing.length; i++) {
+            int candidate = differing[(offset + i) % differing.length];
+            if (connectedWithout(cageOf, candidate)) {
+                cell = candidate;
+                break;
+            }
+        }
+        int cage = cageOf[cell];
+        cageOf[cell] = count++;
+        // The part holding the first cell left keeps the cage, it is marked
+        // while any other part is moved to a new cage
+        int first = 0;
+        while (first < cageOf.length && cageOf[first] != cage) {
+            first++;
+        }
+        if (first == cageOf.length) {
+            return count;
+        }
+        fill(cageOf, first, cage, -1);
+        for (int index = first; index < cageOf.length; index++) {
+            if (cageOf[index] == cage) {
+                fill(cageOf, index, cage, count++);
+            }
+        }
+        fill(cageOf, first, -1, cage);
+        return count;
+    }
+
+    /**
+     * Whether the rest of the cage of cell is orthogonally connected
+     */
+    private static boolean connectedWithout(int[] cageOf, int cell) {
+        int[] rest = cageOf.clone();
+        int cage = rest[cell];
+        rest[cell] = -1;
+        int cells = 0;
+        int first = -1;
+        for (int index = 0; index < rest.length; index++) {
+            if (rest[index] == cage) {
+                cells++;
+                first = first < 0 ? index : first;
+            }
+        }
+        return first < 0 || fill(rest, first, cage, -1) == cells;
+    }
+
+    /**
+     * Move the cells orthogonally connected to index within cage from to cage
+     * to
+     *
+     * @return number of cells moved
+     */
+    private static int fill(int[] cageOf, int index, int from, int to) {
+        if (cageOf[index] != from) {
+            return 0;
+        }
+        cageOf[index] = to;
+        int size = Layout.CLASSIC.size();
+        int x = index % size;
+        int y = index / size;
+        return 1 + (x > 0 ? fill(cageOf, index - 1, from, to) : 0)
+                + (x < size - 1 ? fill(cageOf, index + 1, from, to) : 0)
+                + (y > 0 ? fill(cageOf, index - size, from, to) : 0)
+                + (y < size - 1 ? fill(cageOf, index + size, from, to) : 0);
+    }
+
+    /**
+     * Cut a solved grid into random cages of distinct digits, grown from the
+     * first cell not yet caged into random neighbours
+     *
+     * @return cage of each cell
+     */
+    private int[] cage(Grid solution) {
+        int size = Layout.CLASSIC.size();
+        int[] cageOf = new int[Layout.CLASSIC.cells()];
+        Arrays.fill(cageOf, -1);
+        int[] cells = new int[MAX_CAGE];
+        int[] neighbours = new int[4 * MAX_CAGE];
+        int cage = 0;
+        for (int start = 0; start < cageOf.length; start++) {
+            if (cageOf[start] >= 0) {
+                continue;
+            }
+            int target = 2 + random.nextInt(MAX_CAGE - 1);
+            int count = 0;
+            int used = 0;
+            int cell = start;
+            while (true) {
+                cageOf[cell] = cage;
+                cells[count++] = cell;
+                used |= Grid.bit(solution.get(cell));
+                if (count == target) {
+                    break;
+                }
+                int found = 0;
+                for (int i = 0; i < count; i++) {
+                    int x = cells[i] % size;
+                    int y = cells[i] / size;
+                    found = neighbour(solution, cageOf, used, x - 1, y, neighbours, found);
+                    found = neighbour(solution, cageOf, used, x + 1, y, neighbours, found);
+                    found = neighbour(solution, cageOf, used, x, y - 1, neighbours, found);
+                    found = neighbour(solution, cageOf, used, x, y + 1, neighbours, found);
+                }
+                if (found == 0) {
+                    break;
+                }
+                cell = neighbours[random.nextInt(found)];
+            }
+            cage++;
+        }
+        return cageOf;
+    }
+
+    /**
+     * Cages of a solved grid, each totalling the values of its cells
+     */
+    private static Cages cages(Grid solution, int[] cageOf) {
+        int count = 0;
+        for (int cage : cageOf) {
+            count = Math.max(count, cage + 1);
+        }
+        int[] totals = new int[count];
+        for (int index = 0; index < cageOf.length; index++) {
+            totals[cageOf[index]] += solution.get(index);
+        }
+        return new Cages(cageOf.clone(), totals);
+    }
+
+    private static int neighbour(Grid solution, int[] cageOf, int used, int x, int y, int[] neighbours,
+            int found) {
+        int size = Layout.CLASSIC.size();
+        if (x < 0 || y < 0 || x >= size || y >= size) {
+            return found;
+        }
+        int index = y * size + x;
+        if (cageOf[index] < 0 && (used & Grid.bit(solution.get(index))) == 0) {
+            neighbours[found++] = index;
+        }
+        return found;
+    }
+
+    private long guesses(Grid puzzle) {
+        metrics.reset();
+        solver.solve(new Grid(puzzle), metrics);
+        return metrics.getNodes();
+    }
+
+    /**
+     * Mark the values of a puzzle as its givens
+     */
+    private static Grid given(Grid puzzle) {
+        for (int index = 0; index < puzzle.getLayout().cells(); index++) {
+            if (!puzzle.isEmpty(index)) {
+                puzzle.setGiven(index, true);
+            }
+        }
+        return puzzle;
+    }
+
+    /**
+     * Fill the first n values with a random permutation of 0..n-1
+     */
+    private int[] shuffle(int[] values, int n) {
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            values[i] = values[j];
+            values[j] = i;
+        }
+        return values;
+    }
+
+    /**
+     * Text of a puzzle in the format <code>PuzzleReader</code> reads it, LINE
+     * for classic puzzles and KILLER for Killer puzzles
+     */
+    public static String format(Grid puzzle) {
+        if (!(puzzle.getConstraint() instanceof Cages)) {
+            return puzzle.toLine() + '\n';
+        }
+        Cages cages = (Cages) puzzle.getConstraint();
+        int size = puzzle.getLayout().size();
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < puzzle.getLayout().cells(); index++) {
+            text.append(key(cages.cageOf(index))).append(index % size == size - 1 ? '\n' : ',');
+        }
+        for (int cage = 0; cage < cages.count(); cage++) {
+            text.append(key(cage)).append('=').append(cages.total(cage)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Cage keys a to z then aa, ab and so on
+     */
+    private static String key(int cage) {
+        String letter = String.valueOf((char) ('a' + cage % 26));
+        return cage < 26 ? letter : key(cage / 26 - 1) + letter;
+    }
+
+    /**
+     * Generate count puzzles on threads threads, writing them to out as they
+     * are made. Each thread has its own generator with random numbers split
+     * from seed.
+     *
+     * @throws IOException
+     *             when out can not be written
+     */
+    public static void generate(Layout layout, boolean killer, Difficulty difficulty, long count, long seed,
+            int threads, Writer out) throws IOException, InterruptedException {
+        BlockingQueue<String> made = new ArrayBlockingQueue<>(threads * 64);
+        // First failure of a thread, which leaves its claimed puzzle unmade
+        AtomicReference<Throwable> failed = new AtomicReference<>();
+        AtomicLong claimed = new AtomicLong();
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                PuzzleGenerator generator = new PuzzleGenerator(layout, random.split());
+                pool.execute(() -> {
+                    try {
+                        while (claimed.getAndIncrement() < count) {
+                            made.put(format(killer ? generator.killer(difficulty) : generator.classic(difficulty)));
+                        }
+                    } catch (InterruptedException e) {
+                        failed.compareAndSet(null, e);
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable e) {
+                        // Errors too, or the writer would wait forever for
+                        // the puzzle this thread claimed
+                        failed.compareAndSet(null, e);
+                    }
+                });
+            }
+            for (long i = 0; i < count;) {
+                String puzzle = made.poll(100, TimeUnit.MILLISECONDS);
+                if (puzzle != null) {
+                    out.write(puzzle);
+                    i++;
+                } else if (failed.get() != null) {
+                    throw new RuntimeException("Generator thread failed", failed.get());
+                }
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     * @param args Path of the file to write, the number of puzzles, the
+     * difficulty (easy, medium, hard or expert) and optionally "killer" or the
+     * size of a classic board (4, 9, 16 or 25, default 9). Puzzles are made on
+     * every core. The system property sudoku.seed fixes the random numbers.
+     *
+     *  puzzles.txt 100000 hard
+     *  killers.txt 1000 medium killer
+     *
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Must specify file path, count and difficulty");
+        }
+        boolean killer = args.length > 3 && args[3].equalsIgnoreCase("killer");
+        Layout layout = args.length > 3 && !killer ? Layout.of(Integer.parseInt(args[3])) : Layout.CLASSIC;
+        Difficulty difficulty = Difficulty.valueOf(args[2].toUpperCase(Locale.ROOT));
+        long seed = Long.getLong("sudoku.seed", System.nanoTime());
+        long start = System.nanoTime();
+        try (Writer out = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.US_ASCII)) {
+            generate(layout, killer, difficulty, Long.parseLong(args[1]), seed,
+                    Runtime.getRuntime().availableProcessors(), out);
+        }
+        System.err.printf("Generated %s puzzles in %.3f s%n", args[1], (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,424 @@
+package com.github.sudukosolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read puzzles straight from the bytes of a file or buffer. A file is memory
+ * mapped a region at a time, so a corpus of any size can be read, and each
+ * puzzle is decoded from the mapped bytes into a grid without creating a
+ * String per line or per value.
+ *
+ * Three formats are read:
+ * <ul>
+ * <li>COMMA, a line per row of values separated by commas as read by
+ * <code>Sudoku.create</code>. The size of the board is the number of values on
+ * its first line. Puzzles may follow one another and blank lines are
+ * skipped.</li>
+ * <li>LINE, one puzzle per line as read by <code>Grid.parse</code>. Blank lines
+ * and lines starting with '#' are skipped.</li>
+ * <li>KILLER, 9 lines of 9 cage keys separated by commas followed by a
+ * <code>key=total</code> line per cage as read by <code>Killer.create</code>.
+ * Keys are at most 8 characters.</li>
+ * </ul>
+ * A reader must not be shared between threads.
+ *
+ * @author Matt
+ *
+ */
+public final class PuzzleReader implements Closeable {
+
+    public enum Format {
+        COMMA, LINE, KILLER
+    }
+
+    // Most of a file mapped at once
+    private static final long REGION = 1L << 28;
+    // Longest line read, the region is moved on before fewer bytes are left
+    private static final int MAX_LINE = 1 << 16;
+    private static final int MAX_KEY = 8;
+
+    private final Format format;
+    // Null when reading a buffer
+    private final FileChannel channel;
+    private final long length;
+    private ByteBuffer buffer;
+    // Offset in the file of the start of buffer
+    private long base;
+    private int position;
+
+    // Values of the puzzle being read, reused from puzzle to puzzle
+    private int[] digits = new int[Layout.CLASSIC.cells()];
+
+    /**
+     * Read the puzzles in buffer from its position to its limit. The buffer is
+     * not changed.
+     */
+    public PuzzleReader(ByteBuffer buffer, Format format) {
+        this.format = format;
+        this.channel = null;
+        this.buffer = buffer.duplicate();
+        this.length = buffer.limit();
+        this.position = buffer.position();
+    }
+
+    private PuzzleReader(FileChannel channel, Format format) throws IOException {
+        this.format = format;
+        this.channel = channel;
+        this.length = channel.size();
+        this.buffer = channel.map(MapMode.READ_ONLY, 0, Math.min(REGION, length));
+    }
+
+    /**
+     * Map a file to read the puzzles in
+     *
+     * @throws IOException
+     *             when the file can not be opened
+     */
+    public static PuzzleReader open(Path path, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PuzzleReader(channel, format);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next puzzle into a new grid
+     *
+     * @return the puzzle or null when there are no more
+     * @throws IllegalArgumentException
+     *             when the puzzle is malformed
+     */
+    public Grid next() throws IOException {
+        return read(null);
+    }
+
+    /**
+     * Read the next puzzle into an existing grid of the same size, replacing
+     * everything on it. Killer puzzles each have their own cages so must be
+     * read with <code>next()</code>.
+     *
+     * @return false when there are no more puzzles
+     * @throws IllegalArgumentException
+     *             when the puzzle is malformed or of another size
+     */
+    public boolean next(Grid grid) throws IOException {
+        if (format == Format.KILLER) {
+            throw new IllegalStateException("Killer puzzles can not be read into an existing grid");
+        }
+        return read(grid) != null;
+    }
+
+    /**
+     * Move past the rest of the line where reading stopped, after
+     * <code>next</code> found a malformed puzzle, so reading can go on with
+     * the next line. In the LINE format that is the whole malformed puzzle.
+     *
+     * @return the text of the line skipped, without its line break
+     */
+    public String skipLine() throws IOException {
+        if (!startLine()) {
+            return "";
+        }
+        int end = position;
+        while (end < buffer.limit() && buffer.get(end) != '\n') {
+            end++;
+        }
+        int last = trim(end);
+        StringBuilder line = new StringBuilder(last - position);
+        for (int i = position; i < last; i++) {
+            line.append((char) (buffer.get(i) & 0xFF));
+        }
+        position = next(end);
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private Grid read(Grid into) throws IOException {
+        if (!skipBlank()) {
+            return null;
+        }
+        switch (format) {
+        case COMMA:
+            return readComma(into);
+        case LINE:
+            return readLine(into);
+        default:
+            return readKiller();
+        }
+    }
+
+    private Grid readLine(Grid into) {
+        int end = lineEnd();
+        int count = trim(end) - position;
+        Layout layout = Layout.ofCells(count);
+        if (layout == null) {
+            layout = Layout.CLASSIC;
+        }
+        if (count < layout.cells()) {
+            throw error("Expected " + layout.cells() + " cells but was " + count);
+        }
+        int[] digits = digits(layout);
+        for (int i = 0; i < digits.length; i++) {
+            char c = (char) buffer.get(position + i);
+            int digit = Layout.fromChar(c);
+            if (digit < 0 || digit > layout.size()) {
+                throw error("Invalid cell '" + c + "' at " + i);
+            }
+            digits[i] = digit;
+        }
+        position = next(end);
+        return load(into, layout);
+    }
+
+    private Grid readComma(Grid into) throws IOException {
+        int size = 1;
+        for (int i = position, end = lineEnd(); i < end; i++) {
+            if (buffer.get(i) == ',') {
+                size++;
+            }
+        }
+        Layout layout = Layout.of(size);
+        int[] digits = digits(layout);
+        for (int y = 0; y < size; y++) {
+            if (!startLine()) {
+                throw error("Expected " + size + " rows but was " + y);
+            }
+            int end = lineEnd();
+            int x = 0;
+            int value = 0;
+            boolean number = true;
+            for (int i = position; i <= end; i++) {
+                byte b = i < end ? buffer.get(i) : (byte) ',';
+                if (b == ',') {
+                    if (x == size) {
+                        throw error("Expected " + size + " values on row " + y);
+                    }
+                    if (number && value > size) {
+                        throw error("Invalid value " + value + " on row " + y);
+                    }
+                    // Anything that is not a number is an unknown value
+                    digits[y * size + x++] = number ? value : 0;
+                    value = 0;
+                    number = true;
+                } else if (b >= '0' && b <= '9') {
+                    value = Math.min(value * 10 + b - '0', size + 1);
+                } else if (b > ' ') {
+                    number = false;
+                }
+            }
+            if (x != size) {
+                throw error("Expected " + size + " values on row " + y);
+            }
+            position = next(end);
+        }
+        return load(into, layout);
+    }
+
+    private Grid readKiller() throws IOException {
+        Layout layout = Layout.CLASSIC;
+        int size = layout.size();
+        // Number each cage in the order its key is first seen
+        long[] keys = new long[layout.cells()];
+        int count = 0;
+        int[] cageOf = new int[layout.cells()];
+        for (int y = 0; y < size; y++) {
+            if (!startLine()) {
+                throw error("Expected " + size + " rows but was " + y);
+            }
+            int end = lineEnd();
+            int x = 0;
+            int from = position;
+            for (int i = position; i <= end; i++) {
+                if (i == end || buffer.get(i) == ',') {
+                    if (x == size) {
+                        throw error("Expected " + size + " cage keys on row " + y);
+                    }
+                    long key = key(from, i);
+                    int cage = find(keys, count, key);
+                    if (cage < 0) {
+                        cage = count;
+                        keys[count++] = key;
+                    }
+                    cageOf[y * size + x++] = cage;
+                    from = i + 1;
+                }
+            }
+            if (x != size) {
+                throw error("Expected " + size + " cage keys on row " + y);
+            }
+            position = next(end);
+        }
+
+        // Totals follow until the end or the first row of the next puzzle
+        int[] totals = new int[count];
+        Arrays.fill(totals, -1);
+        while (skipBlank()) {
+            int end = lineEnd();
+            int equals = position;
+            while (equals < end && buffer.get(equals) != '=') {
+                equals++;
+            }
+            if (equals == end) {
+                break;
+            }
+            int cage = find(keys, count, key(position, equals));
+            int total = 0;
+            for (int i = equals + 1; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    total = Math.min(total * 10 + b - '0', Integer.MAX_VALUE / 10);
+                } else if (b > ' ') {
+                    throw error("Invalid total");
+                }
+            }
+            if (cage >= 0) {
+                totals[cage] = total;
+            }
+            position = next(end);
+        }
+        for (int cage = 0; cage < count; cage++) {
+            if (totals[cage] < 0) {
+                throw error("Missing total of cage " + keyText(keys[cage]));
+            }
+        }
+        return new Grid(new Cages(cageOf, totals));
+    }
+
+    /**
+     * Cage key of the characters from..to packed into a long, whitespace is
+     * ignored
+     */
+    private long key(int from, int to) {
+        long key = 0;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b > ' ') {
+                if (++n > MAX_KEY) {
+                    throw error("Cage key longer than " + MAX_KEY);
+                }
+                key = (key << 8) | (b & 0xFF);
+            }
+        }
+        if (n == 0) {
+            throw error("Missing cage key");
+        }
+        return key;
+    }
+
+    /**
+     * Characters of a cage key as packed by <code>key</code>
+     */
+    private static String keyText(long key) {
+        StringBuilder text = new StringBuilder();
+        for (; key != 0; key >>>= 8) {
+            text.append((char) (key & 0xFF));
+        }
+        return text.reverse().toString();
+    }
+
+    private static int find(long[] keys, int count, long key) {
+        for (int cage = 0; cage < count; cage++) {
+            if (keys[cage] == key) {
+                return cage;
+            }
+        }
+        return -1;
+    }
+
+    private int[] digits(Layout layout) {
+        if (digits.length != layout.cells()) {
+            digits = new int[layout.cells()];
+        }
+        return digits;
+    }
+
+    private Grid load(Grid into, Layout layout) {
+        Grid grid = into == null ? new Grid(layout, null) : into;
+        if (grid.getLayout() != layout) {
+            throw error("Expected a " + grid.getLayout() + " puzzle but was " + layout);
+        }
+        grid.load(digits);
+        return grid;
+    }
+
+    /**
+     * Move past blank lines, and comment lines in the LINE format
+     *
+     * @return false at the end of the input
+     */
+    private boolean skipBlank() throws IOException {
+        while (startLine()) {
+            int end = lineEnd();
+            if (trim(end) > position && (format != Format.LINE || buffer.get(position) != '#')) {
+                return true;
+            }
+            position = next(end);
+        }
+        return false;
+    }
+
+    /**
+     * Map the next region of the file when the line at position may not be
+     * wholly within this one
+     *
+     * @return false at the end of the input
+     */
+    private boolean startLine() throws IOException {
+        if (channel != null && buffer.limit() - position < MAX_LINE && base + buffer.limit() < length) {
+            base += position;
+            buffer = channel.map(MapMode.READ_ONLY, base, Math.min(REGION, length - base));
+            position = 0;
+        }
+        return position < buffer.limit();
+    }
+
+    /**
+     * Index of the end of the line at position, not including the new line
+     */
+    private int lineEnd() {
+        int end = position;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        if (end - position > MAX_LINE) {
+            throw error("Line longer than " + MAX_LINE);
+        }
+        return end;
+    }
+
+    /**
+     * End of the line at position without any trailing whitespace
+     */
+    private int trim(int end) {
+        while (end > position && buffer.get(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private int next(int end) {
+        return Math.min(end + 1, buffer.limit());
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + (base + position));
+    }
+}
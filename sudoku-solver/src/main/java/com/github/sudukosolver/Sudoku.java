@@ -1,11 +1,9 @@
 package com.github.sudukosolver;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to solve Sudoku puzzles by loading a puzzle form a file.
@@ -16,6 +14,9 @@ import java.util.Scanner;
  */
 public class Sudoku extends AbstractSuduko<Cell> {
 
+    // Extra rules of the puzzle, null for classic Sudoku
+    private Variant variant;
+
     protected Sudoku() {
 //        board = new ArrayList<>(81);
 //        timeToSolve = -1;
@@ -26,7 +27,8 @@ public class Sudoku extends AbstractSuduko<Cell> {
     /**
      * file path to a Sudoku to solve. File must be in format of where each line
      * has 9 0-9 digits separated by a comma. 0 means an unknown value. There
-     * should be 9 lines of 9 as per diagram below.
+     * should be 9 lines of 9 as per diagram below. Boards of 4, 16 or 25 are
+     * read the same way with that many values on each of that many lines.
      * 
      * 
      *   0,0,0,9,2,0,0,0,4 
@@ -47,110 +49,68 @@ public class Sudoku extends AbstractSuduko<Cell> {
      */
     public static Sudoku create(String filepath) throws FileNotFoundException {
         Sudoku sudoku = new Sudoku();
-        sudoku.populate(filepath);
+        sudoku.load(filepath);
         
         return sudoku;
     }
 
+    /**
+     * file path to a Sudoku to solve under the extra rules of a variant, such
+     * as a diagonal Sudoku or a Windoku. The file is in the same format as for
+     * <code>create(String)</code> and its board must be the size of the
+     * variant.
+     */
+    public static Sudoku create(String filepath, Variant variant) throws FileNotFoundException {
+        Sudoku sudoku = new Sudoku();
+        sudoku.variant = variant;
+        sudoku.load(filepath);
+
+        return sudoku;
+    }
+
     protected void populate(String filepath) {
         /*
-         * Each 'square' has a local column, local grid and local column There
-         * are 9 columns, 9 rows and 9 grids Each square is in exactly one of
-         * each Index to column and row is maintained by X and Y coordinate of
-         * square, origin (0,0) is to top left. Local grid is indexed by
-         * (x/3)+((y/3)*3) which means index will move 1 value every 3
-         * iterations across the y or x axis ;
+         * Each value is stored on the grid at index (y * N) + x where origin
+         * (0,0) is to top left. The grid keeps track of which row, column and
+         * nonet each index belongs to. The size N of the board is the number
+         * of values on the first line.
          */
-        List<List<Cell>> column = new ArrayList<List<Cell>>(9);
-        List<List<Cell>> grid = new ArrayList<List<Cell>>(9);
-        List<List<Cell>> rows = new ArrayList<List<Cell>>(9);
-        Scanner scan;
-        try {
-            scan = new Scanner(new File(filepath));
-        } catch (FileNotFoundException e1) {
-            throw new RuntimeException(e1);
+        try (PuzzleReader reader = PuzzleReader.open(Paths.get(filepath), PuzzleReader.Format.COMMA)) {
+            grid = reader.next();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-
-        for (int i = 0; i < 9; i++) {
-            column.add(new ArrayList<Cell>());
-            grid.add(new ArrayList<Cell>());
+        if (grid == null) {
+            throw new IllegalArgumentException("No puzzle in " + filepath);
         }
-
-        int gridIndex = 0;
-        for (int y = 0; y < 9; y++) {
-            List<Cell> currentRow = new ArrayList<Cell>();
-            rows.add(currentRow);
-            String[] nextRow = scan.nextLine().split(FILE_DELIMITER);
-            for (int x = 0; x < 9; x++) {
-
-                gridIndex = (x / 3) + ((y / 3) * 3);
-                List<Cell> currentColumn = column.get(x);
-                List<Cell> currentNonet = grid.get(gridIndex);
-
-                int value = 0;
-                try {
-                    value = Integer.parseInt(nextRow[x]);
-                } catch (NumberFormatException e) {
-                }
-                
-                // Create a new square to represent this location on the board
-                Cell s = new Cell(y, x, value);
-                // Keep a pointer to squares local to this (row, local grid,
-                // column)
-                s.setRow(currentRow);
-                s.setColumn(currentColumn);
-                s.setLocalNonet(currentNonet);
-
-                // Add square to local row, column and grid
-                currentRow.add(s);
-                currentColumn.add(s);
-                currentNonet.add(s);
-
-                board.add(s);
-            }
+        if (variant != null) {
+            grid = variant.newGrid(grid);
+        }
+        for (int index = 0; index < grid.getLayout().cells(); index++) {
+            // Create a new square to view this location on the board
+            board.add(new Cell(grid, index));
         }
-
-        scan.close();
-    }
-
-    /**
-     * Check if this Sudoku has been solved. A solved Sudoku has values 1..9 in
-     * each column, row and local grid only once.
-     * 
-     * @return true is this sudoku has been solved false if it has not been
-     *         solved.
-     */
-    public boolean isComplete() {
-        return board.stream().allMatch(c -> c.isValid());
     }
 
     /**
-     * Milliseconds that the puzzle took to solve
+     * Milliseconds that the last attempt to solve the puzzle took, see
+     * <code>getMetrics</code> for nanoseconds
      * 
-     * @return long representation of milliseconds that the puzzle took to solve
-     *         or -1 if unsolved.
+     * @return long representation of milliseconds that the puzzle took to
+     *         solve, whether or not a solution was found, or -1 if not yet
+     *         attempted.
      */
     public long getTimeToSolve() {
-        return timeToSolve;
-    }
-
-    /**
-     * Reset this Suduko
-     */
-    public void reset() {
-        board.stream().filter(c -> !c.isFinal()).forEach(c -> c.setValue(0));
-        isComplete = false;
-        timeToSolve = -1;
-        combosTried = 0;
+        return timeToSolve < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(timeToSolve);
     }
 
     /**
      * How many permutations of values were attempted when completing this
      * Sudoku
      * 
-     * @return int value of count of permutations or 0 if unsolved
+     * @return long value of count of permutations or 0 if unsolved
      */
-    public int getCombosTried() {
+    public long getCombosTried() {
         return combosTried;
     }
 
@@ -0,0 +1,165 @@
+package com.github.sudukosolver;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import com.github.sudukosolver.solver.PropagatingSolver;
+
+/**
+ * Non-interactive solving of the puzzles in files, for scripts. Puzzles are
+ * read straight into grids and solved with a <code>PropagatingSolver</code>,
+ * leaving out the cells, printer and statistics of <code>SudokuTest</code> so
+ * that little more than the solver is loaded before the first solution. That
+ * keeps startup short on a JVM and makes a small native image.
+ *
+ * Each solution is written to standard out as soon as it is found, in the
+ * shape its puzzle was read. A Killer puzzle, whose cages hold no values, is
+ * written as the comma grid of its solution without the cages. A puzzle which
+ * could not be solved is written back as it was read, or as an empty grid for
+ * a Killer puzzle.
+ *
+ * <ul>
+ * <li>0, every puzzle was solved</li>
+ * <li>1, a puzzle has no solution</li>
+ * <li>2, the arguments or a puzzle are malformed or a file can not be
+ * read</li>
+ * </ul>
+ *
+ * @author Matt
+ *
+ */
+public class SudokuCli {
+
+    private static final String USAGE = "Usage: sudoku [-t] [-f comma|line|killer] [file|-]...\n"
+            + "  -f  format of the files after it, comma by default\n"
+            + "  -t  write the time each puzzle took to standard error\n"
+            + "  file  puzzles to solve, - or none for standard input.\n"
+            + "        puzzle.txt and killer.txt are bundled samples\n";
+
+    /**
+     * @param args
+     *            options and files of puzzles, see <code>USAGE</code>
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Solve the puzzles of args, writing the solutions to standard out
+     *
+     * @return exit status
+     */
+    static int run(String[] args) {
+        PuzzleReader.Format format = PuzzleReader.Format.COMMA;
+        boolean timed = false;
+        boolean read = false;
+        int status = 0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("-f".equals(arg) && i + 1 < args.length) {
+                    format = PuzzleReader.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                } else if ("-t".equals(arg)) {
+                    timed = true;
+                } else if ("-h".equals(arg) || arg.startsWith("-") && arg.length() > 1) {
+                    System.err.print(USAGE);
+                    return 2;
+                } else {
+                    status = Math.max(status, solve(arg, format, timed, out));
+                    read = true;
+                }
+            }
+            if (!read) {
+                status = solve("-", format, timed, out);
+            }
+            out.flush();
+        } catch (IllegalArgumentException | IOException e) {
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+                // Standard out is already failing, report the first error
+            }
+            System.err.println("Error reading puzzles: " + e.getMessage());
+            return 2;
+        }
+        return status;
+    }
+
+    private static int solve(String source, PuzzleReader.Format format, boolean timed, Writer out)
+            throws IOException {
+        int status = 0;
+        try (PuzzleReader reader = open(source, format)) {
+            PropagatingSolver solver = new PropagatingSolver();
+            Grid grid;
+            while ((grid = reader.next()) != null) {
+                long start = System.nanoTime();
+                if (!solver.solve(grid)) {
+                    grid.reset();
+                    status = 1;
+                }
+                if (timed) {
+                    System.err.println(source + " " + (System.nanoTime() - start) / 1000 + "us");
+                }
+                write(grid, format, out);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Reader of a file, standard input for "-" or a bundled sample
+     */
+    private static PuzzleReader open(String source, PuzzleReader.Format format) throws IOException {
+        if ("-".equals(source)) {
+            return new PuzzleReader(ByteBuffer.wrap(readAll(System.in)), format);
+        }
+        Path path = Paths.get(source);
+        if (Files.exists(path)) {
+            return PuzzleReader.open(path, format);
+        }
+        InputStream sample = SudokuCli.class.getResourceAsStream("/" + source);
+        if (sample == null) {
+            throw new IOException("No file " + source);
+        }
+        try {
+            return new PuzzleReader(ByteBuffer.wrap(readAll(sample)), format);
+        } finally {
+            sample.close();
+        }
+    }
+
+    private static void write(Grid grid, PuzzleReader.Format format, Writer out) throws IOException {
+        Layout layout = grid.getLayout();
+        if (format == PuzzleReader.Format.LINE) {
+            out.append(grid.toLine()).append('\n');
+            return;
+        }
+        // A row a line in the comma format, read back by Sudoku.create
+        for (int index = 0; index < layout.cells(); index++) {
+            out.append(Integer.toString(grid.get(index)));
+            out.append(layout.column(index) == layout.size() - 1 ? '\n' : ',');
+        }
+        out.append('\n');
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 13];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
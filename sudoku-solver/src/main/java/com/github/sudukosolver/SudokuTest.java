@@ -74,6 +74,9 @@ public class SudokuTest {
                 case "p":
                     printer.print(System.out);
                     break;
+                case "t":
+                    printer.printStatistics(System.out);
+                    break;
                 case "r":
                     sudoku.reset();
                     break;
@@ -97,6 +100,7 @@ public class SudokuTest {
             "s : solve Sudoku. Prints true is solved or false otherwise"
         );
         System.out.println("p : print Sudoku");
+        System.out.println("t : print statistics of the last solve");
         System.out.println("r : reset the Sudoku");
         System.out.println("o : print options");
         System.out.println("x : exit");
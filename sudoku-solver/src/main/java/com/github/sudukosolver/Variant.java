@@ -0,0 +1,379 @@
+package com.github.sudukosolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rules of a Sudoku variant on top of the rows, columns and nonets, declared
+ * with a <code>Builder</code> and compiled into flat tables per cell:
+ * <ul>
+ * <li>regions whose cells must all differ, such as the diagonals of a
+ * diagonal Sudoku or the extra windows of a Windoku, become extra peers of
+ * each cell</li>
+ * <li>sum cages, whose digits differ and add up to a total, become a table
+ * of the digit combinations making each total</li>
+ * <li>thermometers, whose digits rise from the bulb, become the position of
+ * each cell along its thermometer</li>
+ * </ul>
+ * Checking a cell reads only these tables and the grid, allocating nothing,
+ * so every engine working through <code>Grid.allowed</code> and
+ * <code>Grid.canPlace</code> solves any variant the same way.
+ *
+ * A cell may be in any number of regions but at most one sum cage and one
+ * thermometer. Sum cages are limited to boards up to 16x16.
+ *
+ * @author Matt
+ *
+ */
+public final class Variant implements Constraint {
+
+    private static final int[] NONE = new int[0];
+
+    private final Layout layout;
+    // Cells sharing an extra region with each cell, other than its peers
+    private final int[][] regionPeers;
+    private final int[][] regions;
+    // Sum cage of each cell or -1, the cells of each and the masks of the
+    // digit combinations making each total
+    private final int[] cageOf;
+    private final int[][] cageCells;
+    private final int[] cageTotals;
+    private final int[][] cageCombinations;
+    // Thermometer of each cell or -1, its position from the bulb and the
+    // cells of each from the bulb
+    private final int[] thermometerOf;
+    private final int[] position;
+    private final int[][] thermometers;
+
+    private Variant(Builder builder) {
+        this.layout = builder.layout;
+        int cells = layout.cells();
+        this.regions = builder.regions.toArray(new int[builder.regions.size()][]);
+        this.regionPeers = new int[cells][];
+        for (int index = 0; index < cells; index++) {
+            Set<Integer> peers = new LinkedHashSet<>();
+            for (int[] region : regions) {
+                if (contains(region, index)) {
+                    for (int cell : region) {
+                        if (cell != index && !isPeer(index, cell)) {
+                            peers.add(cell);
+                        }
+                    }
+                }
+            }
+            regionPeers[index] = toArray(peers);
+        }
+
+        this.cageOf = new int[cells];
+        Arrays.fill(cageOf, -1);
+        this.cageCells = builder.cages.toArray(new int[builder.cages.size()][]);
+        this.cageTotals = new int[cageCells.length];
+        this.cageCombinations = new int[cageCells.length][];
+        for (int cage = 0; cage < cageCells.length; cage++) {
+            for (int cell : cageCells[cage]) {
+                cageOf[cell] = cage;
+            }
+            cageTotals[cage] = builder.totals.get(cage);
+            cageCombinations[cage] = combinations(cageCells[cage].length, cageTotals[cage]);
+        }
+
+        this.thermometerOf = new int[cells];
+        this.position = new int[cells];
+        Arrays.fill(thermometerOf, -1);
+        this.thermometers = builder.thermometers.toArray(new int[builder.thermometers.size()][]);
+        for (int thermometer = 0; thermometer < thermometers.length; thermometer++) {
+            for (int i = 0; i < thermometers[thermometer].length; i++) {
+                thermometerOf[thermometers[thermometer][i]] = thermometer;
+                position[thermometers[thermometer][i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Start declaring the rules of a variant on a board of layout
+     */
+    public static Builder builder(Layout layout) {
+        return new Builder(layout);
+    }
+
+    /**
+     * Declares the rules of a variant, each cell given by its index on the
+     * board
+     */
+    public static final class Builder {
+
+        private final Layout layout;
+        private final List<int[]> regions = new ArrayList<>();
+        private final List<int[]> cages = new ArrayList<>();
+        private final List<Integer> totals = new ArrayList<>();
+        private final List<int[]> thermometers = new ArrayList<>();
+        private final boolean[] caged;
+        private final boolean[] onThermometer;
+
+        private Builder(Layout layout) {
+            this.layout = layout;
+            this.caged = new boolean[layout.cells()];
+            this.onThermometer = new boolean[layout.cells()];
+        }
+
+        /**
+         * Cells which must all hold different digits
+         */
+        public Builder allDifferent(int... cells) {
+            check(cells, layout.size());
+            regions.add(cells.clone());
+            return this;
+        }
+
+        /**
+         * Both long diagonals hold each digit once
+         */
+        public Builder diagonals() {
+            int size = layout.size();
+            int[] down = new int[size];
+            int[] up = new int[size];
+            for (int i = 0; i < size; i++) {
+                down[i] = i * size + i;
+                up[i] = i * size + size - 1 - i;
+            }
+            return allDifferent(down).allDifferent(up);
+        }
+
+        /**
+         * The nonet sized windows one cell in from each corner of a nonet
+         * hold each digit once, as in a Windoku
+         */
+        public Builder windows() {
+            int size = layout.size();
+            int box = layout.boxSize();
+            for (int top = 1; top + box < size; top += box + 1) {
+                for (int left = 1; left + box < size; left += box + 1) {
+                    int[] window = new int[size];
+                    int n = 0;
+                    for (int y = top; y < top + box; y++) {
+                        for (int x = left; x < left + box; x++) {
+                            window[n++] = y * size + x;
+                        }
+                    }
+                    allDifferent(window);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Cells which hold different digits adding up to total
+         */
+        public Builder cage(int total, int... cells) {
+            if (layout.size() > 16) {
+                throw new IllegalArgumentException("Sum cages need a board of at most 16x16");
+            }
+            check(cells, layout.size());
+            for (int cell : cells) {
+                if (caged[cell]) {
+                    throw new IllegalArgumentException("Cell " + cell + " is already in a cage");
+                }
+                caged[cell] = true;
+            }
+            cages.add(cells.clone());
+            totals.add(total);
+            return this;
+        }
+
+        /**
+         * Cells from the bulb whose digits strictly rise along the
+         * thermometer
+         */
+        public Builder thermometer(int... cells) {
+            check(cells, layout.size());
+            for (int cell : cells) {
+                if (onThermometer[cell]) {
+                    throw new IllegalArgumentException("Cell " + cell + " is already on a thermometer");
+                }
+                onThermometer[cell] = true;
+            }
+            thermometers.add(cells.clone());
+            return this;
+        }
+
+        public Variant build() {
+            return new Variant(this);
+        }
+
+        private void check(int[] cells, int most) {
+            if (cells.length == 0 || cells.length > most) {
+                throw new IllegalArgumentException("Expected 1 to " + most + " cells but was " + cells.length);
+            }
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] < 0 || cells[i] >= layout.cells()) {
+                    throw new IllegalArgumentException("No cell " + cells[i] + " on a " + layout + " board");
+                }
+                for (int j = 0; j < i; j++) {
+                    if (cells[i] == cells[j]) {
+                        throw new IllegalArgumentException("Cell " + cells[i] + " given twice");
+                    }
+                }
+            }
+        }
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Empty grid of this variant
+     */
+    public Grid newGrid() {
+        return new Grid(layout, this);
+    }
+
+    /**
+     * Grid of this variant holding the values of puzzle as given values
+     */
+    public Grid newGrid(Grid puzzle) {
+        if (puzzle.getLayout() != layout) {
+            throw new IllegalArgumentException("Expected a " + layout + " grid");
+        }
+        int[] digits = new int[layout.cells()];
+        for (int index = 0; index < digits.length; index++) {
+            digits[index] = puzzle.get(index);
+        }
+        Grid grid = newGrid();
+        grid.load(digits);
+        return grid;
+    }
+
+    @Override
+    public boolean allows(Grid grid, int index, int digit) {
+        return restrict(grid, index, Grid.bit(digit)) != 0;
+    }
+
+    @Override
+    public int restrict(Grid grid, int index, int candidates) {
+        for (int peer : regionPeers[index]) {
+            int value = grid.get(peer);
+            if (value != 0) {
+                candidates &= ~Grid.bit(value);
+            }
+        }
+        int cage = cageOf[index];
+        if (cage >= 0) {
+            int placed = 0;
+            for (int cell : cageCells[cage]) {
+                if (cell != index && !grid.isEmpty(cell)) {
+                    placed |= Grid.bit(grid.get(cell));
+                }
+            }
+            int open = 0;
+            for (int combination : cageCombinations[cage]) {
+                if ((combination & placed) == placed) {
+                    open |= combination;
+                }
+            }
+            candidates &= open & ~placed;
+        }
+        int thermometer = thermometerOf[index];
+        if (thermometer >= 0) {
+            int[] cells = thermometers[thermometer];
+            int at = position[index];
+            // Room for the rising digits before and after this cell
+            int low = at + 1;
+            int high = layout.size() - (cells.length - 1 - at);
+            for (int i = 0; i < cells.length; i++) {
+                int value = grid.get(cells[i]);
+                if (value != 0 && i != at) {
+                    if (i < at) {
+                        low = Math.max(low, value + at - i);
+                    } else {
+                        high = Math.min(high, value - (i - at));
+                    }
+                }
+            }
+            candidates &= low > high ? 0 : (1 << high) - (1 << (low - 1));
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean isSatisfied(Grid grid) {
+        for (int[] region : regions) {
+            int seen = 0;
+            for (int cell : region) {
+                int bit = Grid.bit(grid.get(cell));
+                if (grid.isEmpty(cell) || (seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+            }
+        }
+        for (int cage = 0; cage < cageCells.length; cage++) {
+            int seen = 0;
+            int sum = 0;
+            for (int cell : cageCells[cage]) {
+                seen |= Grid.bit(grid.get(cell));
+                sum += grid.get(cell);
+            }
+            if (sum != cageTotals[cage] || Integer.bitCount(seen) != cageCells[cage].length) {
+                return false;
+            }
+        }
+        for (int[] cells : thermometers) {
+            for (int i = 1; i < cells.length; i++) {
+                if (grid.get(cells[i]) <= grid.get(cells[i - 1])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isPeer(int a, int b) {
+        return layout.row(a) == layout.row(b) || layout.column(a) == layout.column(b)
+                || layout.nonet(a) == layout.nonet(b);
+    }
+
+    /**
+     * Masks of count distinct digits of this board adding up to total
+     */
+    private int[] combinations(int count, int total) {
+        List<Integer> found = new ArrayList<>();
+        for (int mask = 1; mask <= layout.all(); mask++) {
+            if (Integer.bitCount(mask) == count) {
+                int sum = 0;
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    sum += Integer.numberOfTrailingZeros(rest) + 1;
+                }
+                if (sum == total) {
+                    found.add(mask);
+                }
+            }
+        }
+        return toArray(found);
+    }
+
+    private static boolean contains(int[] cells, int index) {
+        for (int cell : cells) {
+            if (cell == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(Collection<Integer> values) {
+        if (values.isEmpty()) {
+            return NONE;
+        }
+        int[] array = new int[values.size()];
+        int i = 0;
+        for (int value : values) {
+            array[i++] = value;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,474 @@
+package com.github.sudukosolver.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.PuzzleReader;
+import com.github.sudukosolver.lanes.LockstepSolver;
+import com.github.sudukosolver.print.CsvWriter;
+import com.github.sudukosolver.print.GridWriter;
+import com.github.sudukosolver.print.LineWriter;
+import com.github.sudukosolver.print.PackedWriter;
+import com.github.sudukosolver.solver.CachingSolver;
+import com.github.sudukosolver.solver.DancingLinksSolver;
+import com.github.sudukosolver.solver.SolutionCache;
+import com.github.sudukosolver.solver.SolutionStore;
+import com.github.sudukosolver.solver.SolveMetrics;
+import com.github.sudukosolver.solver.Solver;
+import com.github.sudukosolver.solver.StoredSolver;
+
+/**
+ * Non-interactive solving of a stream of puzzles, one per line in the 81
+ * character format of <code>Grid.parse</code>. Blank lines and lines starting
+ * with '#' are skipped.
+ *
+ * Puzzles are read in chunks which are solved on a <code>ForkJoinPool</code>.
+ * Only a bounded number of chunks are in flight at once, so memory stays flat
+ * however long the input, and chunks are written in the order they were read.
+ * Each solved puzzle is written as a line of 81 digits, a puzzle which could
+ * not be solved is written back as it was read. Through a
+ * <code>GridWriter</code> a malformed puzzle is written as an empty grid.
+ *
+ * In lockstep mode each chunk is solved by a <code>LockstepSolver</code>,
+ * four puzzles at a time, instead of by the engine. The latency recorded for
+ * each puzzle is then the average over its chunk.
+ *
+ * @author Matt
+ *
+ */
+public class BatchSolver {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    // Solvers keep working state so each worker thread has its own
+    private final ThreadLocal<Solver> solver;
+    // Null unless solving in lockstep
+    private final ThreadLocal<LockstepSolver> lockstep;
+    private final boolean recordMetrics;
+
+    public BatchSolver() {
+        this(Runtime.getRuntime().availableProcessors(), DancingLinksSolver::new);
+    }
+
+    /**
+     * @param parallelism
+     *            number of worker threads
+     * @param engine
+     *            creates the solver used by each worker thread
+     */
+    public BatchSolver(int parallelism, Supplier<Solver> engine) {
+        this(parallelism, engine, false);
+    }
+
+    /**
+     * @param parallelism
+     *            number of worker threads
+     * @param engine
+     *            creates the solver used by each worker thread
+     * @param recordMetrics
+     *            whether to record the metrics of each solve into the
+     *            <code>MetricsReport</code> of the summary
+     */
+    public BatchSolver(int parallelism, Supplier<Solver> engine, boolean recordMetrics) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = parallelism * 4;
+        this.solver = ThreadLocal.withInitial(engine);
+        this.lockstep = null;
+        this.recordMetrics = recordMetrics;
+    }
+
+    /**
+     * Solve in lockstep, see <code>LockstepSolver</code>. No metrics are
+     * recorded.
+     *
+     * @param parallelism
+     *            number of worker threads
+     */
+    public BatchSolver(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = parallelism * 4;
+        this.solver = null;
+        this.lockstep = ThreadLocal.withInitial(LockstepSolver::new);
+        this.recordMetrics = false;
+    }
+
+    /**
+     * Solve every puzzle read from in, writing results to out in input order
+     *
+     * @return summary of the run
+     * @throws IOException
+     *             when in can not be read or out can not be written
+     */
+    public BatchSummary run(BufferedReader in, Writer out) throws IOException {
+        return run(lines(in), text(out));
+    }
+
+    /**
+     * Solve every puzzle of a reader in the LINE format, writing results to
+     * out in input order. Puzzles are decoded straight into grids as they are
+     * read, a malformed puzzle is written back as it was read.
+     *
+     * @return summary of the run
+     * @throws IOException
+     *             when in can not be read or out can not be written
+     */
+    public BatchSummary run(PuzzleReader in, Writer out) throws IOException {
+        return run(grids(in), text(out));
+    }
+
+    /**
+     * Solve every puzzle of a reader in the LINE format, writing each grid,
+     * solved or as left by the failed solve, to out in input order along
+     * with its metrics when recorded. Puzzles are decoded straight into grids
+     * as they are read, a malformed puzzle is written as an empty 9x9 grid so
+     * the output stays in step with the input.
+     *
+     * @return summary of the run
+     * @throws IOException
+     *             when in can not be read or out can not be written
+     */
+    public BatchSummary run(PuzzleReader in, GridWriter out) throws IOException {
+        Grid malformed = new Grid(Layout.CLASSIC, null);
+        return run(grids(in), new Sink() {
+            @Override
+            public void write(Chunk chunk, int i) throws IOException {
+                Grid grid = chunk.grids[i] == null ? malformed : chunk.grids[i];
+                out.write(grid, chunk.metrics == null ? null : chunk.metrics[i]);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        });
+    }
+
+    private static Source lines(BufferedReader in) {
+        return chunk -> {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    chunk.lines[chunk.size++] = line;
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static Source grids(PuzzleReader in) {
+        return chunk -> {
+            long start = System.nanoTime();
+            Grid grid;
+            try {
+                grid = in.next();
+            } catch (IllegalArgumentException e) {
+                // Malformed puzzle, left to fail to parse in the chunk
+                chunk.lines[chunk.size++] = in.skipLine();
+                return true;
+            }
+            if (grid == null) {
+                return false;
+            }
+            if (chunk.metrics != null) {
+                chunk.metrics[chunk.size].setParseNanos(System.nanoTime() - start);
+            }
+            chunk.grids[chunk.size++] = grid;
+            return true;
+        };
+    }
+
+    /**
+     * Each solved puzzle as a line, a puzzle which could not be solved as it
+     * was read
+     */
+    private static Sink text(Writer out) {
+        return new Sink() {
+            @Override
+            public void write(Chunk chunk, int i) throws IOException {
+                if (!chunk.solved[i] && chunk.lines[i] != null) {
+                    out.write(chunk.lines[i]);
+                } else {
+                    out.write(chunk.grids[i].toLine());
+                }
+                out.write('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        };
+    }
+
+    private BatchSummary run(Source in, Sink out) throws IOException {
+        Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        LatencyHistogram latency = new LatencyHistogram();
+        MetricsReport report = recordMetrics ? new MetricsReport() : null;
+        long puzzles = 0;
+        long solved = 0;
+        long start = System.nanoTime();
+
+        Chunk chunk = new Chunk();
+        while (in.next(chunk)) {
+            if (chunk.size == CHUNK_SIZE) {
+                if (inFlight.size() == maxInFlight) {
+                    solved += write(inFlight.removeFirst().join(), out, latency, report);
+                }
+                inFlight.addLast(pool.submit(chunk));
+                puzzles += chunk.size;
+                chunk = new Chunk();
+            }
+        }
+        if (chunk.size > 0) {
+            inFlight.addLast(pool.submit(chunk));
+            puzzles += chunk.size;
+        }
+        while (!inFlight.isEmpty()) {
+            solved += write(inFlight.removeFirst().join(), out, latency, report);
+        }
+        out.flush();
+        return new BatchSummary(puzzles, solved, System.nanoTime() - start, latency, report);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private int write(Chunk chunk, Sink out, LatencyHistogram latency, MetricsReport report)
+            throws IOException {
+        int solved = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            out.write(chunk, i);
+            if (chunk.solved[i]) {
+                solved++;
+            }
+            latency.record(chunk.nanos[i]);
+            if (report != null) {
+                report.record(chunk.metrics[i]);
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * Input of puzzles to a run
+     */
+    private interface Source {
+
+        /**
+         * Add the next puzzle to chunk
+         *
+         * @return false at the end of the input
+         */
+        boolean next(Chunk chunk) throws IOException;
+    }
+
+    /**
+     * Output of the results of a run
+     */
+    private interface Sink {
+
+        /**
+         * Write the result of puzzle i of chunk
+         */
+        void write(Chunk chunk, int i) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * Puzzles read together and solved by one task, either as lines or as
+     * grids already decoded
+     */
+    private class Chunk extends ForkJoinTask<Chunk> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] lines = new String[CHUNK_SIZE];
+        // Grids are kept once parsed, a malformed line has none
+        private final Grid[] grids = new Grid[CHUNK_SIZE];
+        private final boolean[] solved = new boolean[CHUNK_SIZE];
+        private final long[] nanos = new long[CHUNK_SIZE];
+        // Null unless recording metrics
+        private final SolveMetrics[] metrics;
+        private int size;
+
+        private Chunk() {
+            if (recordMetrics) {
+                metrics = new SolveMetrics[CHUNK_SIZE];
+                for (int i = 0; i < CHUNK_SIZE; i++) {
+                    metrics[i] = new SolveMetrics();
+                }
+            } else {
+                metrics = null;
+            }
+        }
+
+        @Override
+        public Chunk getRawResult() {
+            return this;
+        }
+
+        @Override
+        protected void setRawResult(Chunk value) {
+        }
+
+        @Override
+        protected boolean exec() {
+            if (lockstep != null) {
+                execLockstep();
+                return true;
+            }
+            Solver engine = solver.get();
+            for (int i = 0; i < size; i++) {
+                long start = System.nanoTime();
+                try {
+                    Grid grid = grids[i];
+                    if (grid == null) {
+                        grid = Grid.parse(lines[i]);
+                        grids[i] = grid;
+                        if (metrics != null) {
+                            metrics[i].setParseNanos(System.nanoTime() - start);
+                        }
+                    }
+                    solved[i] = metrics == null ? engine.solve(grid) : engine.solve(grid, metrics[i]);
+                } catch (IllegalArgumentException e) {
+                    // Malformed puzzle, written back unsolved
+                }
+                nanos[i] = System.nanoTime() - start;
+            }
+            return true;
+        }
+
+        private void execLockstep() {
+            long start = System.nanoTime();
+            // Well formed grids and where each is in the chunk
+            Grid[] batch = new Grid[size];
+            int[] index = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                try {
+                    if (grids[i] == null) {
+                        grids[i] = Grid.parse(lines[i]);
+                    }
+                    batch[count] = grids[i];
+                    index[count++] = i;
+                } catch (IllegalArgumentException e) {
+                    // Malformed puzzle, written back unsolved
+                }
+            }
+            boolean[] result = lockstep.get().solve(Arrays.copyOf(batch, count));
+            for (int j = 0; j < count; j++) {
+                solved[index[j]] = result[j];
+            }
+            Arrays.fill(nanos, 0, size, (System.nanoTime() - start) / size);
+        }
+    }
+
+    /**
+     * 
+     * @param args Path to a file of puzzles, one per line as 81 digits with 0 or
+     * '.' for an unknown value. The file is memory mapped so may be of any
+     * size. Optional second argument of a path to write the solutions to,
+     * otherwise solutions are written to standard out. A summary of the run is
+     * written to standard error. When the system property sudoku.metrics names
+     * a file the metrics of each solve are recorded and written to it, as CSV
+     * if it ends .csv and otherwise as JSON. When the system property
+     * sudoku.cache gives a number of solutions, puzzles are looked up in a
+     * shared <code>SolutionCache</code> of that size first. When the system
+     * property sudoku.store names a directory, puzzles are looked up in the
+     * <code>SolutionStore</code> there first and each new solution is kept
+     * there. The system property sudoku.output chooses how results are
+     * written, line (the default), csv with the metrics of each solve, or
+     * packed binary, see <code>PackedWriter</code>. When the system property
+     * sudoku.lockstep is true, puzzles are solved four at a time by a
+     * <code>LockstepSolver</code>, which can not be combined with a cache, a
+     * store or metrics.
+     * 
+     *  000000010400000000020000000000050407008000300001090000300400200050100000000806000
+     *  
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Must specify file path");
+        }
+        String metricsFile = System.getProperty("sudoku.metrics");
+        String cacheSize = System.getProperty("sudoku.cache");
+        String storeDirectory = System.getProperty("sudoku.store");
+        boolean recordMetrics = metricsFile != null || "csv".equals(System.getProperty("sudoku.output"));
+        boolean lockstep = Boolean.getBoolean("sudoku.lockstep");
+        if (lockstep && (cacheSize != null || storeDirectory != null || recordMetrics)) {
+            throw new IllegalArgumentException("Lockstep solving records no metrics and uses no cache or store");
+        }
+        Function<WritableByteChannel, GridWriter> writer = writer(System.getProperty("sudoku.output", "line"));
+        SolutionCache cache = cacheSize == null ? null : new SolutionCache(Integer.parseInt(cacheSize));
+        SolutionStore store = storeDirectory == null ? null
+                : SolutionStore.open(Paths.get(storeDirectory), Layout.CLASSIC);
+        Supplier<Solver> cached = cache == null ? DancingLinksSolver::new
+                : () -> new CachingSolver(cache, new DancingLinksSolver());
+        Supplier<Solver> engine = store == null ? cached : () -> new StoredSolver(store, cached.get());
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        BatchSolver batch = lockstep ? new BatchSolver(parallelism)
+                : new BatchSolver(parallelism, engine, recordMetrics);
+        BatchSummary summary;
+        // The puzzles are opened first so a bad input leaves no output file
+        try (PuzzleReader in = PuzzleReader.open(Paths.get(args[0]), PuzzleReader.Format.LINE);
+                WritableByteChannel channel = args.length > 1 ? GridWriter.create(Paths.get(args[1]))
+                        : Channels.newChannel(System.out);
+                GridWriter out = writer.apply(channel)) {
+            summary = batch.run(in, out);
+        } finally {
+            batch.shutdown();
+            if (store != null) {
+                store.close();
+            }
+        }
+        System.err.println(summary);
+        if (cache != null) {
+            System.err.println(cache);
+        }
+        if (store != null) {
+            System.err.println(store);
+        }
+        if (metricsFile != null) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(metricsFile), StandardCharsets.US_ASCII)) {
+                if (metricsFile.endsWith(".csv")) {
+                    summary.getMetrics().writeCsv(out);
+                } else {
+                    summary.getMetrics().writeJson(out);
+                }
+            }
+        }
+    }
+
+    private static Function<WritableByteChannel, GridWriter> writer(String output) {
+        switch (output) {
+        case "line":
+            return LineWriter::new;
+        case "csv":
+            return CsvWriter::new;
+        case "packed":
+            return PackedWriter::new;
+        default:
+            throw new IllegalArgumentException("Unknown output " + output);
+        }
+    }
+}
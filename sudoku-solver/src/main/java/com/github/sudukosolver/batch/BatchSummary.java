@@ -0,0 +1,69 @@
+package com.github.sudukosolver.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a batch run, how many puzzles were read and solved, how long the
+ * run took and the distribution of time spent on each puzzle.
+ *
+ * @author Matt
+ *
+ */
+public class BatchSummary {
+
+    private final long puzzles;
+    private final long solved;
+    private final long elapsedNanos;
+    private final LatencyHistogram latency;
+    private final MetricsReport metrics;
+
+    BatchSummary(long puzzles, long solved, long elapsedNanos, LatencyHistogram latency, MetricsReport metrics) {
+        this.puzzles = puzzles;
+        this.solved = solved;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.metrics = metrics;
+    }
+
+    public long getPuzzles() {
+        return puzzles;
+    }
+
+    public long getSolved() {
+        return solved;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Metrics of each solve, or null when the run did not record them
+     */
+    public MetricsReport getMetrics() {
+        return metrics;
+    }
+
+    public double getPuzzlesPerSecond() {
+        return elapsedNanos == 0 ? 0 : puzzles * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Solved %d of %d puzzles in %.3f s, %.0f puzzles/s%n"
+                        + "Latency us p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                solved, puzzles, elapsedNanos / 1e9, getPuzzlesPerSecond(),
+                micros(latency.getPercentile(50)), micros(latency.getPercentile(90)),
+                micros(latency.getPercentile(99)), micros(latency.getPercentile(99.9)),
+                micros(latency.getMax()));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+}
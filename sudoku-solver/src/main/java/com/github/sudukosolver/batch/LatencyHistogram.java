@@ -0,0 +1,83 @@
+package com.github.sudukosolver.batch;
+
+/**
+ * Histogram of nanosecond latencies, or of any other count, with log-linear
+ * buckets. Each power of two
+ * is split into 16 buckets so a recorded value is kept to within about 6%,
+ * whatever its size, in a fixed 960 counters.
+ *
+ * Not thread safe, record from one thread or <code>add</code> histograms
+ * recorded on separate threads.
+ *
+ * @author Matt
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int BUCKETS = SUB_BUCKETS * 60;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Latency that the given percentage of recorded values are at or below
+     *
+     * @param percentile
+     *            0 to 100
+     * @return lower bound of the bucket holding the percentile, or 0 if
+     *         nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(lowest(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long lowest(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+}
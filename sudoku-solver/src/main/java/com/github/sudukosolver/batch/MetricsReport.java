@@ -0,0 +1,94 @@
+package com.github.sudukosolver.batch;
+
+import java.io.IOException;
+
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Distribution of each solve metric across the puzzles of one or more batch
+ * runs, exported as JSON or CSV. Times are in nanoseconds.
+ *
+ * Not thread safe, record from one thread or <code>add</code> reports recorded
+ * on separate threads.
+ *
+ * @author Matt
+ *
+ */
+public class MetricsReport {
+
+    private static final String[] NAMES = { "parse_nanos", "propagate_nanos", "search_nanos", "total_nanos", "nodes",
+            "backtracks", "propagations", "max_depth" };
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[NAMES.length];
+
+    public MetricsReport() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(SolveMetrics metrics) {
+        histograms[0].record(metrics.getParseNanos());
+        histograms[1].record(metrics.getPropagateNanos());
+        histograms[2].record(metrics.getSearchNanos());
+        histograms[3].record(metrics.getTotalNanos());
+        histograms[4].record(metrics.getNodes());
+        histograms[5].record(metrics.getBacktracks());
+        histograms[6].record(metrics.getPropagations());
+        histograms[7].record(metrics.getMaxDepth());
+    }
+
+    public void add(MetricsReport other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].add(other.histograms[i]);
+        }
+    }
+
+    /**
+     * Number of solves recorded
+     */
+    public long getCount() {
+        return histograms[0].getCount();
+    }
+
+    /**
+     * Write one object per metric holding its percentiles and maximum, such
+     * as <code>{"count":2,"nodes":{"p50":0,"p90":4,"p99":4,"p99.9":4,"max":4}}</code>
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"count\":").append(Long.toString(getCount()));
+        for (int i = 0; i < NAMES.length; i++) {
+            out.append(",\"").append(NAMES[i]).append("\":{");
+            for (double percentile : PERCENTILES) {
+                out.append("\"p").append(label(percentile)).append("\":")
+                        .append(Long.toString(histograms[i].getPercentile(percentile))).append(',');
+            }
+            out.append("\"max\":").append(Long.toString(histograms[i].getMax())).append('}');
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * Write a header line then a line per metric of its count, percentiles and
+     * maximum
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("metric,count");
+        for (double percentile : PERCENTILES) {
+            out.append(",p").append(label(percentile));
+        }
+        out.append(",max\n");
+        for (int i = 0; i < NAMES.length; i++) {
+            out.append(NAMES[i]).append(',').append(Long.toString(histograms[i].getCount()));
+            for (double percentile : PERCENTILES) {
+                out.append(',').append(Long.toString(histograms[i].getPercentile(percentile)));
+            }
+            out.append(',').append(Long.toString(histograms[i].getMax())).append('\n');
+        }
+    }
+
+    private static String label(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
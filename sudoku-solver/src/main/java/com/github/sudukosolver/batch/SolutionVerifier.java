@@ -0,0 +1,432 @@
+package com.github.sudukosolver.batch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.print.PackedWriter;
+
+/**
+ * Check batches of submitted solutions, given as raw bytes, against their
+ * puzzles. Each submission must keep every value of its puzzle, hold each
+ * digit once in every row, column and nonet, and satisfy any constraint of
+ * the puzzle, such as the cage totals of a Killer Sudoku. A submission failing
+ * is reported with the first reason found, in cell order, and the cell where
+ * it was found.
+ *
+ * Submissions are read in place with bit masks, only a submission to a puzzle
+ * with a constraint is loaded into a <code>Grid</code> to check it. Batches
+ * are split across the workers of a <code>ForkJoinPool</code>.
+ *
+ * @author Matt
+ *
+ */
+public class SolutionVerifier {
+
+    // Submissions checked by one task without splitting further
+    private static final int TASK_SIZE = 1024;
+
+    /**
+     * How each submission is written
+     */
+    public enum Encoding {
+        /**
+         * A character per cell as for <code>Grid.parse</code>, either one
+         * submission per line with line breaks of any style or all run
+         * together with no line breaks
+         */
+        TEXT,
+        /** A record of <code>PackedWriter</code> */
+        PACKED
+    }
+
+    /**
+     * Why a submission is not a solution of its puzzle
+     */
+    public enum Failure {
+        /** Cut short, of another size or holding something not a digit */
+        MALFORMED,
+        /** A cell left empty */
+        INCOMPLETE,
+        /** A value of the puzzle changed */
+        GIVEN_CHANGED,
+        /** A digit twice in a row */
+        ROW,
+        /** A digit twice in a column */
+        COLUMN,
+        /** A digit twice in a nonet */
+        NONET,
+        /** The constraint of the puzzle is not satisfied */
+        CONSTRAINT
+    }
+
+    /**
+     * Outcome of checking each submission of a batch
+     */
+    public static final class Report {
+
+        private final Failure[] failures;
+        private final int[] cells;
+
+        private Report(int size) {
+            this.failures = new Failure[size];
+            this.cells = new int[size];
+        }
+
+        public int size() {
+            return failures.length;
+        }
+
+        /**
+         * Why submission i failed, or null when it is a solution
+         */
+        public Failure getFailure(int i) {
+            return failures[i];
+        }
+
+        /**
+         * Cell where submission i was found to fail, -1 when it is a solution
+         * or failed as a whole
+         */
+        public int getCell(int i) {
+            return cells[i];
+        }
+
+        public boolean isValid(int i) {
+            return failures[i] == null;
+        }
+
+        /**
+         * Number of submissions which are solutions
+         */
+        public int countValid() {
+            return count(null);
+        }
+
+        /**
+         * Number of submissions failing for reason, or which are solutions when
+         * reason is null
+         */
+        public int count(Failure reason) {
+            int count = 0;
+            for (Failure failure : failures) {
+                if (failure == reason) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Verified ").append(size()).append(" valid=").append(countValid());
+            for (Failure failure : Failure.values()) {
+                int count = count(failure);
+                if (count > 0) {
+                    sb.append(' ').append(failure.name().toLowerCase()).append('=').append(count);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public SolutionVerifier() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SolutionVerifier(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Check every submission in bytes against one puzzle
+     */
+    public Report verify(Grid puzzle, byte[] bytes, Encoding encoding) {
+        return verify(puzzle, ByteBuffer.wrap(bytes), encoding);
+    }
+
+    /**
+     * Check every submission between the position and limit of buffer against
+     * one puzzle. The position of buffer is not changed.
+     */
+    public Report verify(Grid puzzle, ByteBuffer buffer, Encoding encoding) {
+        Batch batch = new Batch(puzzle.getLayout(), buffer, encoding);
+        Grid[] puzzles = new Grid[batch.count];
+        Arrays.fill(puzzles, puzzle);
+        return verify(puzzles, batch);
+    }
+
+    /**
+     * Check the submissions between the position and limit of buffer, one to
+     * each puzzle in turn. The puzzles must all be the same size. The position
+     * of buffer is not changed.
+     *
+     * @throws IllegalArgumentException
+     *             when there are not as many submissions as puzzles
+     */
+    public Report verify(Grid[] puzzles, ByteBuffer buffer, Encoding encoding) {
+        if (puzzles.length == 0) {
+            return new Report(0);
+        }
+        Batch batch = new Batch(puzzles[0].getLayout(), buffer, encoding);
+        if (batch.count != puzzles.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + puzzles.length + " submissions but was " + batch.count);
+        }
+        return verify(puzzles, batch);
+    }
+
+    private Report verify(Grid[] puzzles, Batch batch) {
+        Report report = new Report(batch.count);
+        if (batch.count <= TASK_SIZE || pool.getParallelism() == 1) {
+            new Checker(batch.layout).check(puzzles, batch, report, 0, batch.count);
+        } else {
+            pool.invoke(new VerifyTask(puzzles, batch, report, 0, batch.count));
+        }
+        return report;
+    }
+
+    /**
+     * Submissions of one board size in a buffer, packed records at a fixed
+     * stride and text found one after another
+     */
+    private static final class Batch {
+
+        final Layout layout;
+        final ByteBuffer buffer;
+        final Encoding encoding;
+        final int start;
+        final int stride;
+        // Start and end of each text submission, null when packed
+        final int[] starts;
+        final int[] ends;
+        final int count;
+
+        Batch(Layout layout, ByteBuffer buffer, Encoding encoding) {
+            this.layout = layout;
+            this.buffer = buffer;
+            this.encoding = encoding;
+            this.start = buffer.position();
+            if (encoding == Encoding.PACKED) {
+                this.stride = PackedWriter.recordSize(layout);
+                this.starts = null;
+                this.ends = null;
+                // The last record may be cut short
+                this.count = (buffer.remaining() + stride - 1) / stride;
+                return;
+            }
+            this.stride = 0;
+            // Whitespace after the last submission is not one
+            int end = buffer.limit();
+            while (end > start && isSpace(buffer.get(end - 1))) {
+                end--;
+            }
+            boolean lines = false;
+            for (int at = start; at < end && !lines; at++) {
+                lines = isBreak(buffer.get(at));
+            }
+            int[] from = new int[buffer.remaining() / layout.cells() + 1];
+            int[] to = new int[from.length];
+            int count = 0;
+            for (int at = start; at < end;) {
+                if (count == from.length) {
+                    from = Arrays.copyOf(from, count * 2);
+                    to = Arrays.copyOf(to, count * 2);
+                }
+                from[count] = at;
+                if (lines) {
+                    // A line of another length is found MALFORMED as a whole
+                    while (at < end && !isBreak(buffer.get(at))) {
+                        at++;
+                    }
+                } else {
+                    at = Math.min(at + layout.cells(), end);
+                }
+                to[count++] = at;
+                if (at < end && buffer.get(at) == '\r') {
+                    at++;
+                }
+                if (at < end && buffer.get(at) == '\n') {
+                    at++;
+                }
+            }
+            this.starts = Arrays.copyOf(from, count);
+            this.ends = Arrays.copyOf(to, count);
+            this.count = count;
+        }
+
+        int at(int i) {
+            return starts == null ? start + i * stride : starts[i];
+        }
+
+        /**
+         * Bytes of submission i, a whole record when packed
+         */
+        int length(int i) {
+            return ends == null ? stride : ends[i] - starts[i];
+        }
+
+        private static boolean isBreak(byte b) {
+            return b == '\r' || b == '\n';
+        }
+
+        private static boolean isSpace(byte b) {
+            return isBreak(b) || b == ' ' || b == '\t';
+        }
+    }
+
+    private static class VerifyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid[] puzzles;
+        private final Batch batch;
+        private final Report report;
+        private final int from;
+        private final int to;
+
+        VerifyTask(Grid[] puzzles, Batch batch, Report report, int from, int to) {
+            this.puzzles = puzzles;
+            this.batch = batch;
+            this.report = report;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                new Checker(batch.layout).check(puzzles, batch, report, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new VerifyTask(puzzles, batch, report, from, middle),
+                    new VerifyTask(puzzles, batch, report, middle, to));
+        }
+    }
+
+    /**
+     * Working state of checking submissions on one thread
+     */
+    private static final class Checker {
+
+        private final Layout layout;
+        private final int[] digits;
+        // Rows, then columns, then nonets
+        private final int[] units;
+        // Loaded with a submission to check a constraint
+        private Grid grid;
+
+        Checker(Layout layout) {
+            this.layout = layout;
+            this.digits = new int[layout.cells()];
+            this.units = new int[layout.size() * 3];
+        }
+
+        void check(Grid[] puzzles, Batch batch, Report report, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int at = batch.at(i);
+                report.cells[i] = -1;
+                report.failures[i] = check(puzzles[i], batch, at, report, i);
+            }
+        }
+
+        private Failure check(Grid puzzle, Batch batch, int at, Report report, int i) {
+            if (puzzle.getLayout() != layout) {
+                return Failure.MALFORMED;
+            }
+            Failure failure = batch.encoding == Encoding.TEXT ? readText(batch.buffer, at, batch.length(i), report, i)
+                    : readPacked(batch.buffer, at, report, i);
+            if (failure != null) {
+                return failure;
+            }
+            int size = layout.size();
+            Arrays.fill(units, 0);
+            for (int index = 0; index < digits.length; index++) {
+                int digit = digits[index];
+                report.cells[i] = index;
+                if (!puzzle.isEmpty(index) && puzzle.get(index) != digit) {
+                    return Failure.GIVEN_CHANGED;
+                }
+                int bit = Grid.bit(digit);
+                int row = layout.row(index);
+                int column = size + layout.column(index);
+                int nonet = size * 2 + layout.nonet(index);
+                if ((units[row] & bit) != 0) {
+                    return Failure.ROW;
+                }
+                if ((units[column] & bit) != 0) {
+                    return Failure.COLUMN;
+                }
+                if ((units[nonet] & bit) != 0) {
+                    return Failure.NONET;
+                }
+                units[row] |= bit;
+                units[column] |= bit;
+                units[nonet] |= bit;
+            }
+            report.cells[i] = -1;
+            if (puzzle.getConstraint() != null) {
+                if (grid == null || grid.getConstraint() != puzzle.getConstraint()) {
+                    grid = new Grid(puzzle);
+                }
+                grid.load(digits);
+                if (!puzzle.getConstraint().isSatisfied(grid)) {
+                    return Failure.CONSTRAINT;
+                }
+            }
+            return null;
+        }
+
+        private Failure readText(ByteBuffer buffer, int at, int length, Report report, int i) {
+            if (length != digits.length || at + length > buffer.limit()) {
+                return Failure.MALFORMED;
+            }
+            for (int index = 0; index < digits.length; index++) {
+                int digit = Layout.fromChar((char) (buffer.get(at + index) & 0xFF));
+                report.cells[i] = index;
+                if (digit < 0 || digit > layout.size()) {
+                    return Failure.MALFORMED;
+                }
+                if (digit == 0) {
+                    return Failure.INCOMPLETE;
+                }
+                digits[index] = digit;
+            }
+            return null;
+        }
+
+        private Failure readPacked(ByteBuffer buffer, int at, Report report, int i) {
+            if (at + PackedWriter.recordSize(layout) > buffer.limit()
+                    || (buffer.get(at) & 0xFF) != layout.size()) {
+                return Failure.MALFORMED;
+            }
+            // Two cells to a byte below 16x16, as written by PackedWriter
+            boolean nibbles = layout.size() < 16;
+            for (int index = 0; index < digits.length; index++) {
+                int digit;
+                if (nibbles) {
+                    int b = buffer.get(at + 1 + index / 2) & 0xFF;
+                    digit = (index & 1) == 0 ? b >>> 4 : b & 0xF;
+                } else {
+                    digit = buffer.get(at + 1 + index) & 0xFF;
+                }
+                report.cells[i] = index;
+                if (digit > layout.size()) {
+                    return Failure.MALFORMED;
+                }
+                if (digit == 0) {
+                    return Failure.INCOMPLETE;
+                }
+                digits[index] = digit;
+            }
+            return null;
+        }
+    }
+}
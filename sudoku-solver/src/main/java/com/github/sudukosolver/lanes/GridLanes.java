@@ -0,0 +1,262 @@
+package com.github.sudukosolver.lanes;
+
+import java.util.Arrays;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+/**
+ * Up to four boards held side by side, each in its own 16 bit lane of a long,
+ * so that one mask operation works on every board at once. Each cell holds
+ * the bit of its digit in each lane, 0 where empty, and each row, column and
+ * nonet holds the digits it uses in each lane.
+ *
+ * Lanes keep their top bit clear as a guard, so a lane can be tested for zero
+ * or for a single bit without a borrow running into the next lane. That limits
+ * boards to 9x9 and smaller, see <code>fits</code>. Any constraint of a grid,
+ * such as Killer cages, is not held.
+ *
+ * Not thread safe.
+ *
+ * @author Matt
+ *
+ */
+public final class GridLanes {
+
+    public static final int LANES = 4;
+    private static final int WIDTH = 16;
+    private static final long LANE = (1L << WIDTH) - 1;
+    private static final long ONES = 0x0001000100010001L;
+    private static final long GUARD = 0x8000800080008000L;
+
+    private final Layout layout;
+    // Digits of the layout in every lane
+    private final long all;
+    private final long[] values;
+    // Rows, then columns, then nonets as numbered by Layout.unit
+    private final long[] units;
+    // Lanes holding a board, all bits of each
+    private long used;
+
+    public GridLanes(Layout layout) {
+        if (!fits(layout)) {
+            throw new IllegalArgumentException("Lanes are too narrow for " + layout);
+        }
+        this.layout = layout;
+        this.all = layout.all() * ONES;
+        this.values = new long[layout.cells()];
+        this.units = new long[layout.unitCount()];
+    }
+
+    /**
+     * Whether boards of layout fit in a lane
+     */
+    public static boolean fits(Layout layout) {
+        return layout.size() < WIDTH;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Put the values of grid in a lane, replacing any board there
+     */
+    public void load(int lane, Grid grid) {
+        if (grid.getLayout() != layout) {
+            throw new IllegalArgumentException("Expected a " + layout + " grid");
+        }
+        if ((used & lane(lane)) != 0) {
+            clear(lane);
+        }
+        for (int index = 0; index < values.length; index++) {
+            int digit = grid.get(index);
+            if (digit != 0) {
+                place(index, bit(lane, digit));
+            }
+        }
+        used |= lane(lane);
+    }
+
+    /**
+     * Place every value of a lane that the grid does not yet hold on the grid
+     */
+    public void store(int lane, Grid grid) {
+        for (int index = 0; index < values.length; index++) {
+            int digit = digit(index, lane);
+            if (digit != 0 && grid.isEmpty(index)) {
+                grid.place(index, digit);
+            }
+        }
+    }
+
+    /**
+     * Empty every lane
+     */
+    public void reset() {
+        Arrays.fill(values, 0);
+        Arrays.fill(units, 0);
+        used = 0;
+    }
+
+    /**
+     * Empty a lane
+     */
+    public void clear(int lane) {
+        long keep = ~(LANE << lane * WIDTH);
+        for (int index = 0; index < values.length; index++) {
+            values[index] &= keep;
+        }
+        for (int unit = 0; unit < units.length; unit++) {
+            units[unit] &= keep;
+        }
+        used &= keep;
+    }
+
+    /**
+     * Value of a cell in a lane, 0 when empty
+     */
+    public int digit(int index, int lane) {
+        int bit = (int) (values[index] >>> lane * WIDTH & LANE);
+        return bit == 0 ? 0 : Integer.numberOfTrailingZeros(bit) + 1;
+    }
+
+    /**
+     * Digits that may go in a cell in each lane where it is empty, 0 in the
+     * lanes where it is not
+     */
+    public long candidates(int index) {
+        long empty = used & ~fill(values[index]);
+        return ~(units[layout.row(index)] | units[layout.size() + layout.column(index)]
+                | units[layout.size() * 2 + layout.nonet(index)]) & all & empty;
+    }
+
+    /**
+     * Lanes, as bits 0 to 3, whose board is full with each digit once in every
+     * row, column and nonet
+     */
+    public int solvedLanes() {
+        long wrong = 0;
+        for (int unit = 0; unit < units.length; unit++) {
+            long seen = 0;
+            for (int index : layout.unit(unit)) {
+                seen |= values[index];
+            }
+            // A full unit of distinct digits has every digit
+            wrong |= seen ^ all;
+        }
+        return lanes(used & ~fill(wrong));
+    }
+
+    /**
+     * Place naked and hidden singles in every lane at once until none are
+     * left, as <code>PropagatingSolver</code> does on one board
+     *
+     * @return lanes, as bits 0 to 3, found to have no solution
+     */
+    public int propagate() {
+        long broken = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // Naked singles
+            for (int index = 0; index < values.length; index++) {
+                long empty = used & ~broken & ~fill(values[index]);
+                if (empty == 0) {
+                    continue;
+                }
+                long candidates = candidates(index) & empty;
+                broken |= empty & ~fill(candidates);
+                long singles = candidates & single(candidates);
+                if (singles != 0) {
+                    place(index, singles);
+                    changed = true;
+                }
+            }
+
+            // Hidden singles
+            for (int unit = 0; unit < units.length; unit++) {
+                int[] cells = layout.unit(unit);
+                long once = 0;
+                long twice = 0;
+                for (int cell : cells) {
+                    long candidates = candidates(cell) & ~broken;
+                    twice |= once & candidates;
+                    once |= candidates;
+                }
+                // A digit with nowhere left to go
+                broken |= used & fill((once | units[unit]) ^ all);
+                long hidden = once & ~twice & ~broken;
+                if (hidden == 0) {
+                    continue;
+                }
+                for (int cell : cells) {
+                    long found = candidates(cell) & hidden;
+                    if (found != 0) {
+                        // Two digits only this cell can take
+                        long many = fill(found) & ~single(found);
+                        broken |= many;
+                        found &= ~many;
+                        if (found != 0) {
+                            place(cell, found);
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return lanes(broken);
+    }
+
+    /**
+     * All bits of a lane
+     */
+    private static long lane(int lane) {
+        return LANE << lane * WIDTH;
+    }
+
+    /**
+     * Bit of a digit in a lane
+     */
+    private static long bit(int lane, int digit) {
+        return (long) Grid.bit(digit) << lane * WIDTH;
+    }
+
+    private void place(int index, long bits) {
+        values[index] |= bits;
+        units[layout.row(index)] |= bits;
+        units[layout.size() + layout.column(index)] |= bits;
+        units[layout.size() * 2 + layout.nonet(index)] |= bits;
+    }
+
+    /**
+     * All bits of each lane that is not 0
+     */
+    private static long fill(long x) {
+        long nonZero = ((x | GUARD) - ONES) & GUARD;
+        return (nonZero >>> WIDTH - 1) * LANE;
+    }
+
+    /**
+     * All bits of each lane holding exactly one bit
+     */
+    private static long single(long x) {
+        // Clearing the lowest bit of each lane leaves 0 where there was one
+        long rest = ((x | GUARD) - ONES) & x;
+        return fill(x) & ~fill(rest);
+    }
+
+    /**
+     * Bit per lane of the lanes with any bit set
+     */
+    private static int lanes(long x) {
+        int lanes = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            if ((x >>> lane * WIDTH & LANE) != 0) {
+                lanes |= 1 << lane;
+            }
+        }
+        return lanes;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.sudukosolver.lanes;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.solver.PropagatingSolver;
+
+/**
+ * Solve many puzzles four at a time in the lanes of a <code>GridLanes</code>.
+ * The four are propagated together and most puzzles need nothing more. A
+ * puzzle left needing a guess is finished on its own by a
+ * <code>PropagatingSolver</code>, as are puzzles with a constraint or too large
+ * for a lane.
+ *
+ * Not thread safe, use one instance per thread.
+ *
+ * @author Matt
+ *
+ */
+public class LockstepSolver {
+
+    private final PropagatingSolver fallback = new PropagatingSolver();
+    // Lanes of the layout last solved
+    private GridLanes lanes;
+    // Index in the batch of the grid in each lane
+    private final int[] batch = new int[GridLanes.LANES];
+
+    /**
+     * Solve each grid in place, a grid that can not be solved is left as it
+     * was
+     *
+     * @return whether each grid was solved
+     */
+    public boolean[] solve(Grid[] grids) {
+        boolean[] solved = new boolean[grids.length];
+        int size = 0;
+        for (int i = 0; i < grids.length; i++) {
+            Grid grid = grids[i];
+            if (grid.getConstraint() != null || !GridLanes.fits(grid.getLayout())) {
+                solved[i] = fallback.solve(grid);
+                continue;
+            }
+            if (size > 0 && grid.getLayout() != lanes.getLayout()) {
+                flush(grids, size, solved);
+                size = 0;
+            }
+            if (size == 0) {
+                if (lanes == null || lanes.getLayout() != grid.getLayout()) {
+                    lanes = new GridLanes(grid.getLayout());
+                } else {
+                    lanes.reset();
+                }
+            }
+            lanes.load(size, grid);
+            batch[size++] = i;
+            if (size == GridLanes.LANES) {
+                flush(grids, size, solved);
+                size = 0;
+            }
+        }
+        if (size > 0) {
+            flush(grids, size, solved);
+        }
+        return solved;
+    }
+
+    private void flush(Grid[] grids, int size, boolean[] solved) {
+        int broken = lanes.propagate();
+        int full = lanes.solvedLanes();
+        for (int lane = 0; lane < size; lane++) {
+            Grid grid = grids[batch[lane]];
+            if ((full & 1 << lane) != 0) {
+                lanes.store(lane, grid);
+                solved[batch[lane]] = true;
+            } else if ((broken & 1 << lane) == 0) {
+                solved[batch[lane]] = fallback.solve(grid);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.sudukosolver.print;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Write each grid as a CSV row of its line, whether it is full, and the
+ * metrics of solving it. A full grid is not checked, it is solved only when
+ * the solver said so. The metric columns are left empty when they were not
+ * recorded. Times are in nanoseconds.
+ *
+ * @author Matt
+ *
+ */
+public class CsvWriter extends GridWriter {
+
+    private static final String HEADER = "grid,full,total,parse,propagate,search,nodes,backtracks,propagations,max_depth\n";
+    private static final int METRICS = 8;
+
+    private boolean header = true;
+
+    public CsvWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(Grid grid, SolveMetrics metrics) throws IOException {
+        int cells = grid.getLayout().cells();
+        reserve(HEADER.length() + cells + 8 + METRICS * 21);
+        if (header) {
+            putAscii(HEADER);
+            header = false;
+        }
+        boolean full = true;
+        for (int index = 0; index < cells; index++) {
+            int digit = grid.get(index);
+            full &= digit != 0;
+            putDigit(digit);
+        }
+        // A solver leaves the grid as given when it finds no solution
+        putAscii(full ? ",true" : ",false");
+        if (metrics == null) {
+            for (int i = 0; i < METRICS; i++) {
+                put(',');
+            }
+        } else {
+            putMetric(metrics.getTotalNanos());
+            putMetric(metrics.getParseNanos());
+            putMetric(metrics.getPropagateNanos());
+            putMetric(metrics.getSearchNanos());
+            putMetric(metrics.getNodes());
+            putMetric(metrics.getBacktracks());
+            putMetric(metrics.getPropagations());
+            putMetric(metrics.getMaxDepth());
+        }
+        put('\n');
+    }
+
+    private void putMetric(long value) {
+        put(',');
+        putNumber(value);
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.sudukosolver.print;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Write many grids to a channel, encoding each into one reusable block of
+ * bytes which is written out whole once full. Nothing is allocated per grid,
+ * so unlike <code>SudokuPrinter</code> this keeps up with millions of grids.
+ *
+ * Not thread safe.
+ *
+ * @author Matt
+ *
+ */
+public abstract class GridWriter implements Closeable, Flushable {
+
+    protected static final int BLOCK_SIZE = 1 << 20;
+
+    // ASCII character of each digit as written by Grid.toLine
+    private static final byte[] DIGITS = new byte[36];
+
+    static {
+        for (int digit = 0; digit < DIGITS.length; digit++) {
+            DIGITS[digit] = (byte) Layout.toChar(digit);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final byte[] block;
+    private final ByteBuffer view;
+    private int size;
+
+    protected GridWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.block = new byte[BLOCK_SIZE];
+        this.view = ByteBuffer.wrap(block);
+    }
+
+    /**
+     * Channel writing a new file at path, replacing any file there
+     */
+    public static FileChannel create(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write the values of grid
+     *
+     * @param metrics
+     *            of solving the grid, or null when not recorded
+     */
+    public abstract void write(Grid grid, SolveMetrics metrics) throws IOException;
+
+    /**
+     * Make room in the block for at least bytes more
+     */
+    protected final void reserve(int bytes) throws IOException {
+        if (bytes > block.length) {
+            throw new IllegalArgumentException("Record of " + bytes + " bytes is larger than a block");
+        }
+        if (size + bytes > block.length) {
+            drain();
+        }
+    }
+
+    /**
+     * Add a byte, <code>reserve</code> having made room
+     */
+    protected final void put(int b) {
+        block[size++] = (byte) b;
+    }
+
+    /**
+     * Add the ASCII character of a digit, <code>reserve</code> having made
+     * room
+     */
+    protected final void putDigit(int digit) {
+        block[size++] = DIGITS[digit];
+    }
+
+    /**
+     * Add a number in decimal, <code>reserve</code> having made room for 20
+     * bytes
+     */
+    protected final void putNumber(long value) {
+        if (value < 0) {
+            block[size++] = '-';
+            value = -value;
+        }
+        int end = size;
+        long rest = value;
+        do {
+            end++;
+            rest /= 10;
+        } while (rest != 0);
+        for (int i = end - 1; i >= size; i--) {
+            block[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    /**
+     * Add ASCII text, <code>reserve</code> having made room
+     */
+    protected final void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            block[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Write the block to the channel
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        view.clear().limit(size);
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        size = 0;
+    }
+}
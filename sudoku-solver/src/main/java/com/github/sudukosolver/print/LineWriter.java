@@ -0,0 +1,31 @@
+package com.github.sudukosolver.print;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Write each grid as a line of one character per cell, 0 for unknown, the
+ * same as <code>Grid.toLine</code>
+ *
+ * @author Matt
+ *
+ */
+public class LineWriter extends GridWriter {
+
+    public LineWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(Grid grid, SolveMetrics metrics) throws IOException {
+        int cells = grid.getLayout().cells();
+        reserve(cells + 1);
+        for (int index = 0; index < cells; index++) {
+            putDigit(grid.get(index));
+        }
+        put('\n');
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.sudukosolver.print;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.solver.SolveMetrics;
+
+/**
+ * Write each grid in binary. A record starts with a byte of the board size.
+ * Then, for boards up to 15x15, cells are packed two to a byte, first cell in
+ * the high four bits and 0 for unknown. That is 42 bytes for a 9x9 grid
+ * against 82 as a line. Larger boards take a byte per cell. Use
+ * <code>read</code> to decode a record.
+ *
+ * @author Matt
+ *
+ */
+public class PackedWriter extends GridWriter {
+
+    public PackedWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    /**
+     * Bytes of the record of a grid of layout
+     */
+    public static int recordSize(Layout layout) {
+        return 1 + (isPacked(layout) ? (layout.cells() + 1) / 2 : layout.cells());
+    }
+
+    @Override
+    public void write(Grid grid, SolveMetrics metrics) throws IOException {
+        Layout layout = grid.getLayout();
+        int cells = layout.cells();
+        reserve(recordSize(layout));
+        put(layout.size());
+        if (isPacked(layout)) {
+            for (int index = 0; index < cells; index += 2) {
+                put(grid.get(index) << 4 | (index + 1 < cells ? grid.get(index + 1) : 0));
+            }
+        } else {
+            for (int index = 0; index < cells; index++) {
+                put(grid.get(index));
+            }
+        }
+    }
+
+    /**
+     * Decode the next record of in, leaving in after it. The values are given
+     * values of the grid returned.
+     *
+     * @return the grid, or null when in has no bytes left
+     * @throws IllegalArgumentException
+     *             when the record is malformed or cut short
+     */
+    public static Grid read(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return null;
+        }
+        Layout layout = Layout.of(in.get() & 0xFF);
+        if (in.remaining() < recordSize(layout) - 1) {
+            throw new IllegalArgumentException("Record cut short");
+        }
+        int cells = layout.cells();
+        int[] digits = new int[cells];
+        if (isPacked(layout)) {
+            for (int index = 0; index < cells; index += 2) {
+                int b = in.get() & 0xFF;
+                digits[index] = b >>> 4;
+                if (index + 1 < cells) {
+                    digits[index + 1] = b & 0xF;
+                }
+            }
+        } else {
+            for (int index = 0; index < cells; index++) {
+                digits[index] = in.get() & 0xFF;
+            }
+        }
+        for (int digit : digits) {
+            if (digit > layout.size()) {
+                throw new IllegalArgumentException("Invalid digit " + digit + " on a " + layout + " board");
+            }
+        }
+        Grid grid = new Grid(layout, null);
+        grid.load(digits);
+        return grid;
+    }
+
+    private static boolean isPacked(Layout layout) {
+        return layout.size() < 16;
+    }
+}
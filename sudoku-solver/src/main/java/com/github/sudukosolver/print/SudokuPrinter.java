@@ -1,11 +1,12 @@
 package com.github.sudukosolver.print;
 
 import java.io.IOException;
-import java.util.List;
 
 import com.github.sudukosolver.AbstractCell;
 import com.github.sudukosolver.AbstractSuduko;
-import com.github.sudukosolver.Cell;
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.solver.SolveMetrics;
 
 /**
  * Print sudoku to output using Unicode8 characters to represent board, board will 
@@ -31,6 +32,8 @@ import com.github.sudukosolver.Cell;
  *  ║ 6 │ 4 │ 5 ║ 7 │ 1 │ 3 ║ 2 │ 9 │ 8 ║ 
  *  ╚═══╧═══╧═══╩═══╧═══╧═══╩═══╧═══╧═══╝ 
  *  </pre>
+ * Boards of other sizes are drawn the same way with a double line around each
+ * nonet and digits above 9 as A-Z.
  * @author Matt
  *
  */
@@ -39,13 +42,27 @@ public class SudokuPrinter <T extends AbstractSuduko<? extends AbstractCell>> im
     T target;
     /**
      * Print statistics about the sudoku , the time taken to complete and
-     * combonations tried to complete
+     * combonations tried to complete, from the metrics of its last solve
      * 
      * @param out
      *            Output stream
      * @throws IOException 
      */
     public void printStatistics(Appendable out) throws IOException {
+        SolveMetrics metrics = target.getMetrics();
+        print(String.format(" Solved       %s%n", target.isComplete()), out);
+        print(String.format(" Time         %.3f ms%n", millis(metrics.getTotalNanos())), out);
+        print(String.format("   parse      %.3f ms%n", millis(metrics.getParseNanos())), out);
+        print(String.format("   propagate  %.3f ms%n", millis(metrics.getPropagateNanos())), out);
+        print(String.format("   search     %.3f ms%n", millis(metrics.getSearchNanos())), out);
+        print(String.format(" Nodes        %d%n", metrics.getNodes()), out);
+        print(String.format(" Backtracks   %d%n", metrics.getBacktracks()), out);
+        print(String.format(" Propagations %d%n", metrics.getPropagations()), out);
+        print(String.format(" Max depth    %d%n", metrics.getMaxDepth()), out);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
     }
 
     /**
@@ -56,38 +73,48 @@ public class SudokuPrinter <T extends AbstractSuduko<? extends AbstractCell>> im
      * 
      */
     public void print(Appendable out) throws IOException {
-        printTop(out);
+        Grid grid = target.getGrid();
+        Layout layout = grid.getLayout();
+        int size = layout.size();
+        int box = layout.boxSize();
+        print(border('╔', '═', '╤', '╦', '╗', layout) + "\n", out);
         printDoubleVerticleLine(out);
-        List<Cell> board = (List<Cell>) target.getBoard();
-        print(String.valueOf(board.get(0).getValue()), out);
-        for (int i = 1; i < board.size(); i++) {
+        print(grid.get(0), out);
+        for (int i = 1; i < layout.cells(); i++) {
             // New Row
-            if (i % AbstractSuduko.getRowSize()  == 0) {
+            if (i % size == 0) {
                 printDoubleVerticleLine(out);
-                // Every 3rd row double line
-                if (i % (AbstractSuduko.getRowSize() * 3) == 0) {
-                    printDoubleHorizontalLine(out);
+                // Every nonet's last row double line
+                if (i % (size * box) == 0) {
+                    print("\n" + border('╠', '═', '╪', '╬', '╣', layout) + "\n", out);
                 } else {
-                    printSingleHorizontalLine(out);
+                    print("\n" + border('╟', '─', '┼', '╫', '╢', layout) + "\n", out);
                 }
                 printDoubleVerticleLine(out);
-            } else if (i % 3 == 0) {
+            } else if (i % box == 0) {
                 printDoubleVerticleLine(out);
             } else {
                 printSingleVerticleLine(out);
             }
-            print(String.valueOf(board.get(i).getValue()), out);
+            print(grid.get(i), out);
         }
         printDoubleVerticleLine(out);
-        printBottom(out);
-    }
-
-    private void printTop(Appendable out) throws IOException {
-        print(" ╔═══╤═══╤═══╦═══╤═══╤═══╦═══╤═══╤═══╗ \n", out);
+        print("\n" + border('╚', '═', '╧', '╩', '╝', layout) + "\n", out);
     }
 
-    private void printBottom(Appendable out) throws IOException {
-        print("\n ╚═══╧═══╧═══╩═══╧═══╧═══╩═══╧═══╧═══╝ \n", out);
+    /**
+     * Horizontal line across the board with a joint between each cell and a
+     * heavier joint between each nonet
+     */
+    private static String border(char start, char fill, char cellJoint, char nonetJoint, char end, Layout layout) {
+        StringBuilder line = new StringBuilder(" ").append(start);
+        for (int x = 0; x < layout.size(); x++) {
+            if (x > 0) {
+                line.append(x % layout.boxSize() == 0 ? nonetJoint : cellJoint);
+            }
+            line.append(fill).append(fill).append(fill);
+        }
+        return line.append(end).append(' ').toString();
     }
 
     private void printSingleVerticleLine(Appendable out) throws IOException {
@@ -98,18 +125,14 @@ public class SudokuPrinter <T extends AbstractSuduko<? extends AbstractCell>> im
         print(" ║ ", out);
     }
 
-    private void printDoubleHorizontalLine(Appendable out) throws IOException {
-        print("\n ╠═══╪═══╪═══╬═══╪═══╪═══╬═══╪═══╪═══╣ \n", out);
-    }
-    
-    private void printSingleHorizontalLine(Appendable out) throws IOException {
-        print("\n ╟───┼───┼───╫───┼───┼───╫───┼───┼───╢ \n", out);
-    }
-
     private void print(String value, Appendable out) throws IOException {
         out.append(value);
     }
 
+    private void print(int digit, Appendable out) throws IOException {
+        out.append(Layout.toChar(digit));
+    }
+
     @Override
     public void printTarget(T t) {
         target = t;
@@ -0,0 +1,239 @@
+package com.github.sudukosolver.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.PuzzleReader;
+import com.github.sudukosolver.solver.BoundedSolver;
+import com.github.sudukosolver.solver.PropagatingSolver;
+import com.github.sudukosolver.solver.SolveOutcome;
+import com.github.sudukosolver.solver.Solver;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP endpoint solving puzzles posted to <code>/solve</code>. The
+ * body holds one or more puzzles in a <code>PuzzleReader</code> format chosen
+ * by the <code>format</code> query parameter, line (the default), comma or
+ * killer. The response is a line per puzzle in the format of
+ * <code>Grid.toLine</code>, solved or, when there is no solution, as given.
+ *
+ * <ul>
+ * <li>400, a puzzle is malformed</li>
+ * <li>405, the request is not a POST</li>
+ * <li>413, the body is too large</li>
+ * <li>503, the limit on requests being solved at once is reached</li>
+ * <li>504, the deadline passed before every puzzle was solved</li>
+ * </ul>
+ *
+ * Each request is handled on its own virtual thread when the JVM has them,
+ * Java 21 on, and otherwise on a cached pool of platform threads. A request
+ * may ask for a shorter deadline than the server's with the
+ * <code>deadline</code> query parameter in milliseconds. The deadline is
+ * checked between the puzzles of a request and, when the engine is a
+ * <code>BoundedSolver</code>, during the search of each puzzle.
+ *
+ * @author Matt
+ *
+ */
+public class SolveServer {
+
+    private static final int MAX_BODY = 1 << 24;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long deadlineNanos;
+    private final Supplier<Solver> engine;
+
+    /**
+     * @param port
+     *            port to listen on, 0 for any free port
+     * @param concurrency
+     *            most requests solved at once, further requests are refused
+     * @param deadlineMillis
+     *            longest a request may take to solve
+     * @param engine
+     *            creates the solver for each request
+     * @throws IOException
+     *             when the port can not be bound
+     */
+    public SolveServer(int port, int concurrency, long deadlineMillis, Supplier<Solver> engine) throws IOException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), concurrency);
+        this.executor = newExecutor();
+        this.permits = new Semaphore(concurrency);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.engine = engine;
+        server.createContext("/solve", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, giving those being handled up to delay seconds
+     * to finish
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    /**
+     * Port listened on, useful when created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "Use POST");
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Too many requests being solved");
+                return;
+            }
+            try {
+                solve(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void solve(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String query = exchange.getRequestURI().getRawQuery();
+        PuzzleReader.Format format = PuzzleReader.Format
+                .valueOf(parameter(query, "format", "line").toUpperCase(Locale.ROOT));
+        String deadline = parameter(query, "deadline", null);
+        long allowed = deadline == null ? deadlineNanos
+                : Math.min(deadlineNanos, TimeUnit.MILLISECONDS.toNanos(Long.parseLong(deadline)));
+
+        byte[] body = read(exchange.getRequestBody());
+        if (body == null) {
+            respond(exchange, 413, "Body over " + MAX_BODY + " bytes");
+            return;
+        }
+        Solver solver = engine.get();
+        StringBuilder out = new StringBuilder();
+        PuzzleReader in = new PuzzleReader(ByteBuffer.wrap(body), format);
+        Grid grid;
+        while ((grid = in.next()) != null) {
+            long left = allowed - (System.nanoTime() - start);
+            if (left < 0) {
+                respond(exchange, 504, "Deadline passed");
+                return;
+            }
+            if (solver instanceof BoundedSolver) {
+                SolveOutcome outcome = ((BoundedSolver) solver).solve(grid, Duration.ofNanos(left));
+                if (outcome == SolveOutcome.BUDGET_EXHAUSTED) {
+                    respond(exchange, 504, "Deadline passed");
+                    return;
+                }
+            } else {
+                solver.solve(grid);
+            }
+            out.append(grid.toLine()).append('\n');
+        }
+        respond(exchange, 200, out.toString());
+    }
+
+    /**
+     * Value of a query parameter, or orElse when it is not given
+     */
+    private static String parameter(String query, String name, String orElse) throws IOException {
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                    return URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+                }
+            }
+        }
+        return orElse;
+    }
+
+    /**
+     * Whole of a request body, or null if it is too large
+     */
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 13];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            if (body.size() + read > MAX_BODY) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = (text == null ? "" : text).getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * A virtual thread per task where the JVM has them, otherwise a cached
+     * pool. Looked up reflectively as the build targets Java 8.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Serve until the JVM is stopped. The system properties sudoku.port
+     * (default 8080), sudoku.concurrency (default 1024) and sudoku.deadline in
+     * milliseconds (default 10000) configure the server.
+     *
+     * curl --data-binary @puzzles.txt http://localhost:8080/solve
+     * curl --data-binary @killer.txt 'http://localhost:8080/solve?format=killer'
+     */
+    public static void main(String[] args) throws IOException {
+        SolveServer server = new SolveServer(Integer.getInteger("sudoku.port", 8080),
+                Integer.getInteger("sudoku.concurrency", 1024), Long.getLong("sudoku.deadline", 10000),
+                PropagatingSolver::new);
+        server.start();
+        System.err.println("Solving on port " + server.getPort());
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.sudukosolver.service;
+
+/**
+ * The interfaces of <code>java.util.concurrent.Flow</code>, which arrived in
+ * Java 9, for a build targeting Java 8. Each has the same methods and contract
+ * as its namesake there, so adapting to the JDK's is one call delegated per
+ * method.
+ *
+ * @author Matt
+ *
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * Source of items, sent to each subscriber only as it asks for them
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items, called by one thread at a time
+     */
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * Link from a publisher to a subscriber through which items are asked for
+     */
+    public interface Subscription {
+
+        /**
+         * Ask for up to n more items, n must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items, perhaps after some already on their way
+         */
+        void cancel();
+    }
+
+    /**
+     * Subscriber to one stream that publishes another
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.sudukosolver.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.service.SolverService.Result;
+
+/**
+ * Solves the puzzles of an upstream publisher and publishes the results in
+ * order, see <code>SolverService.processor</code>.
+ *
+ * Every signal is handled by <code>drain</code>, run by one thread at a time:
+ * whichever thread finds it idle runs it, and any thread arriving while it
+ * runs just makes it go round again. State is guarded by this but subscribers
+ * and the upstream subscription are only called outside the lock.
+ *
+ * @author Matt
+ *
+ */
+final class SolveProcessor implements Flow.Processor<Grid, Result> {
+
+    private final SolverService service;
+    private final int concurrency;
+    private final Duration timeout;
+    private final AtomicInteger work = new AtomicInteger();
+
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super Result> downstream;
+    // Puzzles received whose results are not yet published, oldest first
+    private final ArrayDeque<CompletableFuture<Result>> solving = new ArrayDeque<>();
+    // Results asked for by downstream and not yet published
+    private long demand;
+    // Puzzles asked of upstream and not yet received
+    private long requested;
+    private boolean upstreamDone;
+    private Throwable upstreamError;
+    private boolean cancelled;
+    // Error ending the stream early
+    private Throwable failure;
+    // Nothing more is sent downstream
+    private boolean terminated;
+
+    SolveProcessor(SolverService service, int concurrency, Duration timeout) {
+        this.service = service;
+        this.concurrency = concurrency;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !terminated;
+            if (accepted) {
+                upstream = subscription;
+            }
+        }
+        if (!accepted) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(Grid puzzle) {
+        CompletableFuture<Result> future = service.solveAsync(puzzle, timeout);
+        synchronized (this) {
+            if (terminated) {
+                future.cancel(false);
+                return;
+            }
+            requested--;
+            solving.add(future);
+        }
+        // Publish once solved, at once if it already is
+        future.whenComplete((result, error) -> drain());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            upstreamDone = true;
+            upstreamError = throwable;
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Result> subscriber) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = downstream == null;
+            if (accepted) {
+                downstream = subscriber;
+            }
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is accepted"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Must request a positive number of results"));
+                    return;
+                }
+                synchronized (SolveProcessor.this) {
+                    // Saturate rather than overflow
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (SolveProcessor.this) {
+                    cancelled = true;
+                }
+                drain();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Publish what results are ready, ask upstream for more puzzles and pass
+     * on the end of the stream, until no thread has signalled anything more
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            publish();
+            long ask = 0;
+            Flow.Subscription subscription = null;
+            Flow.Subscriber<? super Result> subscriber = null;
+            Throwable error = null;
+            boolean cancel = false;
+            synchronized (this) {
+                if ((cancelled || failure != null) && !terminated) {
+                    terminated = true;
+                    cancel = true;
+                    subscriber = cancelled ? null : downstream;
+                    error = failure;
+                } else if (!terminated && upstream != null && !upstreamDone) {
+                    ask = concurrency - solving.size() - requested;
+                    if (ask > 0) {
+                        requested += ask;
+                    }
+                } else if (!terminated && upstreamDone && solving.isEmpty() && downstream != null) {
+                    terminated = true;
+                    subscriber = downstream;
+                    error = upstreamError;
+                }
+                subscription = upstream;
+            }
+            if (cancel) {
+                stop(subscription);
+            } else if (ask > 0) {
+                subscription.request(ask);
+            }
+            if (subscriber != null) {
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Send downstream each finished result at the head of the queue that has
+     * been asked for
+     */
+    private void publish() {
+        while (true) {
+            CompletableFuture<Result> head;
+            Flow.Subscriber<? super Result> subscriber;
+            synchronized (this) {
+                head = solving.peek();
+                if (terminated || cancelled || failure != null || downstream == null || demand == 0
+                        || head == null || !head.isDone()) {
+                    return;
+                }
+                solving.poll();
+                demand--;
+                subscriber = downstream;
+            }
+            Result result;
+            try {
+                result = head.join();
+            } catch (CompletionException e) {
+                synchronized (this) {
+                    failure = e.getCause();
+                }
+                return;
+            }
+            subscriber.onNext(result);
+        }
+    }
+
+    /**
+     * End the stream with an error, stopping upstream and any solving
+     */
+    private void fail(Throwable error) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = error;
+            }
+        }
+        drain();
+    }
+
+    private void stop(Flow.Subscription subscription) {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        synchronized (this) {
+            for (CompletableFuture<Result> future : solving) {
+                future.cancel(false);
+            }
+            solving.clear();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.sudukosolver.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.solver.BoundedSolver;
+import com.github.sudukosolver.solver.CancellationToken;
+import com.github.sudukosolver.solver.PropagatingSolver;
+import com.github.sudukosolver.solver.SolveLimits;
+import com.github.sudukosolver.solver.SolveOutcome;
+
+/**
+ * Solve puzzles without blocking the caller, one at a time with
+ * <code>solveAsync</code> or as a stream through a <code>processor</code>.
+ * Each puzzle is copied before it is solved on the executor, so the caller's
+ * grid is never touched and one service can be shared by any number of
+ * threads. Each thread of the executor keeps its own solver.
+ *
+ * @author Matt
+ *
+ */
+public class SolverService {
+
+    /**
+     * Outcome of solving one puzzle
+     */
+    public static final class Result {
+
+        private final Grid puzzle;
+        private final Grid solution;
+        private final SolveOutcome outcome;
+        private final long nanos;
+
+        Result(Grid puzzle, Grid solution, SolveOutcome outcome, long nanos) {
+            this.puzzle = puzzle;
+            this.solution = solution;
+            this.outcome = outcome;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Copy of the puzzle as it was given
+         */
+        public Grid getPuzzle() {
+            return puzzle;
+        }
+
+        /**
+         * Solved grid, or null when no solution was found
+         */
+        public Grid getSolution() {
+            return solution;
+        }
+
+        public SolveOutcome getOutcome() {
+            return outcome;
+        }
+
+        public boolean isSolved() {
+            return outcome == SolveOutcome.SOLVED;
+        }
+
+        /**
+         * Nanoseconds spent solving, not counting time queued
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return outcome + " " + (solution == null ? puzzle : solution).toLine();
+        }
+    }
+
+    private final Executor executor;
+    private final ThreadLocal<BoundedSolver> solver;
+
+    public SolverService() {
+        this(ForkJoinPool.commonPool(), PropagatingSolver::new);
+    }
+
+    /**
+     * @param executor
+     *            runs each solve
+     * @param engine
+     *            creates the solver used by each thread of executor
+     */
+    public SolverService(Executor executor, Supplier<? extends BoundedSolver> engine) {
+        this.executor = executor;
+        this.solver = ThreadLocal.withInitial(engine);
+    }
+
+    /**
+     * Solve a copy of puzzle on the executor. Cancelling the future stops the
+     * search at its next guess.
+     */
+    public CompletableFuture<Result> solveAsync(Grid puzzle) {
+        return solveAsync(puzzle, null);
+    }
+
+    /**
+     * Solve a copy of puzzle on the executor, giving up once timeout has
+     * passed from the start of solving. Cancelling the future stops the search
+     * at its next guess.
+     *
+     * @param timeout
+     *            longest to search, or null for no limit
+     */
+    public CompletableFuture<Result> solveAsync(Grid puzzle, Duration timeout) {
+        Grid given = new Grid(puzzle);
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<Result> future = CompletableFuture
+                .supplyAsync(() -> solve(given, new SolveLimits(timeout, Long.MAX_VALUE, token)), executor);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                token.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Processor solving each puzzle it receives and publishing the results in
+     * the order the puzzles arrived. It asks upstream for no more puzzles than
+     * concurrency beyond those whose results have been published, so a
+     * producer can not queue more work than that however fast it is, and a
+     * slow subscriber holds back the producer. Only one subscriber is
+     * accepted.
+     *
+     * @param concurrency
+     *            most puzzles received but not yet published
+     * @param timeout
+     *            longest to search each puzzle, or null for no limit
+     */
+    public Flow.Processor<Grid, Result> processor(int concurrency, Duration timeout) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        return new SolveProcessor(this, concurrency, timeout);
+    }
+
+    private Result solve(Grid given, SolveLimits limits) {
+        Grid grid = new Grid(given);
+        long start = System.nanoTime();
+        SolveOutcome outcome = solver.get().solve(grid, limits);
+        return new Result(given, outcome == SolveOutcome.SOLVED ? grid : null, outcome, System.nanoTime() - start);
+    }
+}
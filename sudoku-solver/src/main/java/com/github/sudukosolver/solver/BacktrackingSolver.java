@@ -0,0 +1,104 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Solve by trying all possible combinations, by default starting from the top
+ * left cell and advancing left to right, returning the first correct
+ * solution. Therefore there may be other solutions to the puzzle.
+ *
+ * A search may be bounded by <code>SolveLimits</code>, checked before every
+ * placement, with each placement counted as a node. Not thread safe while a
+ * bounded search runs.
+ *
+ * @author Matt
+ *
+ */
+public class BacktrackingSolver implements BoundedSolver {
+
+    private static final Ordering.Candidates ALLOWED = Grid::allowed;
+
+    private final Ordering ordering;
+
+    // Bounds on the running search, null for none
+    private SolveLimits limits;
+    private long nodes;
+    // Why the running search stopped short, null if it has not
+    private SolveOutcome stopped;
+
+    public BacktrackingSolver() {
+        this(new IndexOrdering());
+    }
+
+    /**
+     * @param ordering
+     *            order to try cells and digits in
+     */
+    public BacktrackingSolver(Ordering ordering) {
+        this.ordering = ordering;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        return solve(grid, 0, null);
+    }
+
+    @Override
+    public boolean solve(Grid grid, SolveMetrics metrics) {
+        long start = System.nanoTime();
+        boolean solved = solve(grid, 0, metrics);
+        metrics.searchNanos += System.nanoTime() - start;
+        return solved;
+    }
+
+    @Override
+    public SolveOutcome solve(Grid grid, SolveLimits limits) {
+        this.limits = limits;
+        this.nodes = 0;
+        this.stopped = null;
+        try {
+            if (solve(grid, 0, null)) {
+                return SolveOutcome.SOLVED;
+            }
+            return stopped == null ? SolveOutcome.UNSOLVABLE : stopped;
+        } finally {
+            this.limits = null;
+        }
+    }
+
+    /**
+     * @param depth
+     *            number of values placed so far
+     * @param metrics
+     *            null unless recording
+     */
+    private boolean solve(Grid grid, int depth, SolveMetrics metrics) {
+        int index = ordering.nextCell(grid, ALLOWED);
+        // No square left to fill, check if puzzle complete
+        if (index < 0) {
+            return grid.isSolved();
+        }
+        // Attempt each digit that can go in the square
+        for (int rest = grid.allowed(index); rest != 0;) {
+            int digit = ordering.nextValue(grid, index, rest, ALLOWED);
+            rest &= ~Grid.bit(digit);
+            if (limits != null && (stopped = limits.check(nodes++)) != null) {
+                return false;
+            }
+            // This is a valid value so move on to the next square
+            grid.place(index, digit);
+            if (metrics != null) {
+                metrics.guess(depth + 1);
+            }
+            if (solve(grid, depth + 1, metrics)) {
+                return true;
+            }
+            grid.clear(index);
+            if (metrics != null) {
+                metrics.backtracks++;
+            }
+        }
+        // When all attempts fail for this square return
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.sudukosolver.solver;
+
+import java.time.Duration;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Solver whose search can be bounded, so one hard or unsolvable puzzle can not
+ * hold a thread for long. The node budget and cancellation are checked at
+ * every node of the search and the deadline every 256 nodes.
+ *
+ * @author Matt
+ *
+ */
+public interface BoundedSolver extends Solver {
+
+    /**
+     * Attempt to solve grid within limits. Unless solved the grid is left as
+     * it was.
+     *
+     * @param grid
+     *            grid to solve
+     * @param limits
+     *            bounds on the search
+     * @return how the attempt ended
+     */
+    public SolveOutcome solve(Grid grid, SolveLimits limits);
+
+    /**
+     * Attempt to solve grid before timeout has passed
+     */
+    public default SolveOutcome solve(Grid grid, Duration timeout) {
+        return solve(grid, SolveLimits.within(timeout));
+    }
+
+    /**
+     * Attempt to solve grid visiting at most maxNodes nodes
+     */
+    public default SolveOutcome solve(Grid grid, long maxNodes) {
+        return solve(grid, SolveLimits.nodes(maxNodes));
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Look up each puzzle in a <code>SolutionCache</code> by its canonical form
+ * before solving it with another engine, so a puzzle seen before in any
+ * relabelled, permuted, transposed or rotated form is answered by mapping the
+ * stored solution back rather than by searching.
+ *
+ * Grids with a constraint, such as Killer cages, and boards too large for
+ * <code>CanonicalForm</code> go straight to the engine. The cache may be
+ * shared between threads, this solver is as thread safe as its engine.
+ *
+ * @author Matt
+ *
+ */
+public class CachingSolver implements Solver {
+
+    private static final int[] NO_SOLUTION = new int[0];
+
+    private final SolutionCache cache;
+    private final Solver engine;
+
+    /**
+     * @param cache
+     *            cache to look up and store solutions in
+     * @param engine
+     *            solver used on a miss
+     */
+    public CachingSolver(SolutionCache cache, Solver engine) {
+        this.cache = cache;
+        this.engine = engine;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        if (!isCacheable(grid)) {
+            return engine.solve(grid);
+        }
+        CanonicalForm form = CanonicalForm.of(grid);
+        int[] solution = cache.get(form.getKey());
+        if (solution != null) {
+            return fill(grid, form, solution);
+        }
+        boolean solved = engine.solve(grid);
+        cache.put(form.getKey(), solved ? form.toCanonical(grid) : NO_SOLUTION);
+        return solved;
+    }
+
+    @Override
+    public boolean solve(Grid grid, SolveMetrics metrics) {
+        if (!isCacheable(grid)) {
+            return engine.solve(grid, metrics);
+        }
+        long start = System.nanoTime();
+        CanonicalForm form = CanonicalForm.of(grid);
+        int[] solution = cache.get(form.getKey());
+        metrics.searchNanos += System.nanoTime() - start;
+        if (solution != null) {
+            return fill(grid, form, solution);
+        }
+        boolean solved = engine.solve(grid, metrics);
+        cache.put(form.getKey(), solved ? form.toCanonical(grid) : NO_SOLUTION);
+        return solved;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    private static boolean isCacheable(Grid grid) {
+        return grid.getConstraint() == null && CanonicalForm.isSupported(grid.getLayout());
+    }
+
+    private static boolean fill(Grid grid, CanonicalForm form, int[] solution) {
+        if (solution.length == 0) {
+            return false;
+        }
+        form.fill(grid, solution);
+        return true;
+    }
+}
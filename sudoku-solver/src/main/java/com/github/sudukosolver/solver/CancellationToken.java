@@ -0,0 +1,21 @@
+package com.github.sudukosolver.solver;
+
+/**
+ * Asks a search to give up, from any thread. The search notices at its next
+ * node.
+ *
+ * @author Matt
+ *
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
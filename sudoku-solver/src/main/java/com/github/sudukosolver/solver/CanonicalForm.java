@@ -0,0 +1,475 @@
+package com.github.sudukosolver.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+/**
+ * The least of every grid equivalent to a given grid, along with the transform
+ * that reaches it. Two grids are equivalent when one can be turned into the
+ * other by any mix of
+ * <ul>
+ * <li>relabelling the digits</li>
+ * <li>swapping rows within a band or columns within a stack</li>
+ * <li>swapping bands or stacks</li>
+ * <li>transposing, which with the above also covers rotation and
+ * reflection</li>
+ * </ul>
+ * Equivalent puzzles have the same key and their solutions map onto each
+ * other through the transforms.
+ *
+ * Grids are compared row by row with empty cells lowest and digits relabelled
+ * in the order they are first seen. The least first row follows from where
+ * the clues of each row sit, so only the stack, column and transpose choices
+ * that give it are tried. For each the other rows are chosen depth first,
+ * only following the lowest row at each step and giving up on a branch as
+ * soon as it can not beat the best so far.
+ *
+ * Boards with nonets of up to 3 by 3 are supported, larger boards have far
+ * too many transforms to search.
+ *
+ * @author Matt
+ *
+ */
+public final class CanonicalForm {
+
+    private static final int MAX_BOX = 3;
+
+    private final String key;
+    // Cell of the original grid at each cell of the canonical grid
+    private final int[] cells;
+    // Canonical digit of each original digit and back, 0 maps to 0
+    private final int[] digitTo;
+    private final int[] digitFrom;
+
+    private CanonicalForm(String key, int[] cells, int[] digitTo, int[] digitFrom) {
+        this.key = key;
+        this.cells = cells;
+        this.digitTo = digitTo;
+        this.digitFrom = digitFrom;
+    }
+
+    public static boolean isSupported(Layout layout) {
+        return layout.boxSize() <= MAX_BOX;
+    }
+
+    /**
+     * Canonical form of the values on grid. Any constraint of the grid is not
+     * considered.
+     *
+     * @throws IllegalArgumentException
+     *             when the layout of the grid is not supported
+     */
+    public static CanonicalForm of(Grid grid) {
+        if (!isSupported(grid.getLayout())) {
+            throw new IllegalArgumentException("No canonical form for " + grid.getLayout());
+        }
+        return new Search(grid).run();
+    }
+
+    /**
+     * Values of the canonical grid, one character per cell as for
+     * <code>Grid.toLine</code>
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Map the values of a grid equivalent by the same transform, such as a
+     * solution of the original, into canonical form
+     */
+    public int[] toCanonical(Grid grid) {
+        int[] canonical = new int[cells.length];
+        for (int c = 0; c < cells.length; c++) {
+            canonical[c] = digitTo[grid.get(cells[c])];
+        }
+        return canonical;
+    }
+
+    /**
+     * Place values in canonical form, such as a solution of the canonical
+     * grid, into the empty cells of the original grid
+     */
+    public void fill(Grid grid, int[] canonical) {
+        for (int c = 0; c < cells.length; c++) {
+            int index = cells[c];
+            if (grid.isEmpty(index)) {
+                grid.place(index, digitFrom[canonical[c]]);
+            }
+        }
+    }
+
+    /**
+     * State of the search for the least equivalent grid
+     */
+    private static final class Search {
+
+        private final int size;
+        private final int box;
+        private final int[] values;
+        private final int[][] perms;
+
+        // Current transform, column map is output column to input column
+        private boolean transpose;
+        private int first;
+        private final int[] columnOf;
+        private final boolean[] bandUsed;
+        private final boolean[] rowUsed;
+        private int band;
+
+        // Grid built so far and the label map before each row
+        private final int[] current;
+        private final int[] currentCells;
+        private final int[][] maps;
+        private final int[] next;
+        // Rows that may go next at each depth, relabelled
+        private final int[][] candidates;
+        private final int[][] candidateRows;
+        private final int[] scratch;
+        private final int[] unseen;
+
+        private int[] best;
+        private final int[] bestCells;
+        private final int[] bestMap;
+
+        private Search(Grid grid) {
+            Layout layout = grid.getLayout();
+            size = layout.size();
+            box = layout.boxSize();
+            values = new int[layout.cells()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = grid.get(i);
+            }
+            perms = permutations(box);
+            columnOf = new int[size];
+            bandUsed = new boolean[box];
+            rowUsed = new boolean[size];
+            current = new int[values.length];
+            currentCells = new int[values.length];
+            maps = new int[size + 1][size + 1];
+            next = new int[size + 1];
+            candidates = new int[size][size * size];
+            candidateRows = new int[size][size];
+            scratch = new int[size + 1];
+            unseen = new int[size + 1];
+            bestCells = new int[values.length];
+            bestMap = new int[size + 1];
+        }
+
+        private CanonicalForm run() {
+            // Relabelled, a row is empty cells and then labels counting up, so
+            // the least first row has the most empty cells first: its stacks in
+            // order of fewest clues and empty cells first in each stack. Only
+            // rows that can do as well as any other are tried first.
+            int[][] counts = new int[2 * size][];
+            int least = Integer.MAX_VALUE;
+            for (int t = 0; t < 2; t++) {
+                transpose = t == 1;
+                for (int r = 0; r < size; r++) {
+                    int[] count = stackCounts(r);
+                    counts[t * size + r] = count;
+                    least = Math.min(least, pattern(count));
+                }
+            }
+            for (int t = 0; t < 2; t++) {
+                transpose = t == 1;
+                for (int r = 0; r < size; r++) {
+                    int[] count = counts[t * size + r];
+                    if (pattern(count) != least) {
+                        continue;
+                    }
+                    first = r;
+                    for (int[] stacks : perms) {
+                        if (isAscending(stacks, count)) {
+                            columns(stacks, 0);
+                        }
+                    }
+                }
+            }
+            return result();
+        }
+
+        /**
+         * Try every order of the columns within each stack from stack s on
+         * that puts the empty cells of the first row first
+         */
+        private void columns(int[] stacks, int s) {
+            if (s == box) {
+                next[0] = 1;
+                search(0);
+                return;
+            }
+            for (int[] order : perms) {
+                boolean emptyFirst = true;
+                boolean clue = false;
+                for (int k = 0; k < box; k++) {
+                    int column = stacks[s] * box + order[k];
+                    columnOf[s * box + k] = column;
+                    boolean empty = values[index(first, column)] == 0;
+                    emptyFirst &= !(clue && empty);
+                    clue |= !empty;
+                }
+                if (emptyFirst && (best == null || s + 1 == box || secondRow((s + 1) * box) <= 0)) {
+                    columns(stacks, s + 1);
+                }
+            }
+        }
+
+        /**
+         * Compare the second row of the best with the lowest start of length
+         * cells any row of the first band could be relabelled to. Digits of
+         * the first row still to be placed only bound their label from below.
+         *
+         * @return less than 0 if the best could be beaten, 0 if matched only,
+         *         more than 0 if neither
+         */
+        private int secondRow(int length) {
+            Arrays.fill(scratch, 0);
+            int label = 1;
+            for (int c = 0; c < size; c++) {
+                int digit = values[index(first, columnOf[c])];
+                if (digit != 0) {
+                    scratch[digit] = c < length ? label++ : -1;
+                }
+            }
+            int clues = label - 1;
+            for (int c = length; c < size; c++) {
+                clues += values[index(first, columnOf[c])] != 0 ? 1 : 0;
+            }
+            int result = 1;
+            int band = first / box * box;
+            for (int r = band; r < band + box; r++) {
+                if (r == first) {
+                    continue;
+                }
+                Arrays.fill(unseen, 0);
+                int unseenLabel = clues + 1;
+                int c = 0;
+                for (; c < length; c++) {
+                    int digit = values[index(r, columnOf[c])];
+                    int value = scratch[digit];
+                    if (value < 0) {
+                        // Least label it could get, can not tell further
+                        if (label <= best[size + c]) {
+                            return -1;
+                        }
+                        break;
+                    }
+                    if (digit != 0 && value == 0) {
+                        if (unseen[digit] == 0) {
+                            unseen[digit] = unseenLabel++;
+                        }
+                        value = unseen[digit];
+                    }
+                    if (value != best[size + c]) {
+                        if (value < best[size + c]) {
+                            return -1;
+                        }
+                        break;
+                    }
+                }
+                if (c == length) {
+                    result = 0;
+                }
+            }
+            return result;
+        }
+
+        private int[] stackCounts(int r) {
+            int[] count = new int[box];
+            for (int c = 0; c < size; c++) {
+                if (values[index(r, c)] != 0) {
+                    count[c / box]++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Bits of the least relabelled row with these clues per stack, set for
+         * the cells holding a clue, first cell highest
+         */
+        private int pattern(int[] count) {
+            int[] sorted = count.clone();
+            Arrays.sort(sorted);
+            int bits = 0;
+            for (int s = 0; s < box; s++) {
+                for (int k = 0; k < box; k++) {
+                    bits = bits << 1 | (k < box - sorted[s] ? 0 : 1);
+                }
+            }
+            return bits;
+        }
+
+        private boolean isAscending(int[] stacks, int[] count) {
+            for (int s = 1; s < box; s++) {
+                if (count[stacks[s]] < count[stacks[s - 1]]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void search(int row) {
+            if (row == size) {
+                if (best == null || compare(values.length) < 0) {
+                    if (best == null) {
+                        best = new int[values.length];
+                    }
+                    System.arraycopy(current, 0, best, 0, values.length);
+                    System.arraycopy(currentCells, 0, bestCells, 0, values.length);
+                    System.arraycopy(maps[size], 0, bestMap, 0, size + 1);
+                }
+                return;
+            }
+
+            // Rows that may go next, any row of an unused band when starting a
+            // band otherwise the unused rows of the current band
+            int count = 0;
+            boolean newBand = row % box == 0;
+            for (int b = 0; b < box; b++) {
+                if (newBand ? !bandUsed[b] : b == band) {
+                    for (int k = 0; k < box; k++) {
+                        int r = b * box + k;
+                        if (!rowUsed[r] && (row > 0 || r == first)) {
+                            relabel(r, maps[row], next[row], scratch, candidates[row], count * size);
+                            candidateRows[row][count++] = r;
+                        }
+                    }
+                }
+            }
+            int least = 0;
+            for (int i = 1; i < count; i++) {
+                if (compareRows(candidates[row], i * size, least * size) < 0) {
+                    least = i;
+                }
+            }
+            System.arraycopy(candidates[row], least * size, current, row * size, size);
+            if (best != null && compare((row + 1) * size) > 0) {
+                return;
+            }
+
+            int previousBand = band;
+            for (int i = 0; i < count; i++) {
+                if (compareRows(candidates[row], i * size, least * size) != 0) {
+                    continue;
+                }
+                int r = candidateRows[row][i];
+                System.arraycopy(candidates[row], i * size, current, row * size, size);
+                System.arraycopy(maps[row], 0, maps[row + 1], 0, size + 1);
+                next[row + 1] = relabel(r, maps[row + 1], next[row], maps[row + 1], null, 0);
+                for (int c = 0; c < size; c++) {
+                    currentCells[row * size + c] = index(r, columnOf[c]);
+                }
+                rowUsed[r] = true;
+                if (newBand) {
+                    band = r / box;
+                    bandUsed[band] = true;
+                }
+                search(row + 1);
+                rowUsed[r] = false;
+                if (newBand) {
+                    bandUsed[band] = false;
+                }
+                band = previousBand;
+            }
+        }
+
+        /**
+         * Relabel the digits of input row r through the column map
+         *
+         * @param from
+         *            labels so far, copied to map unless they are the same
+         * @param map
+         *            labels extended by any new digits of the row
+         * @param out
+         *            relabelled row, may be null
+         * @return next unused label
+         */
+        private int relabel(int r, int[] from, int label, int[] map, int[] out, int offset) {
+            if (map != from) {
+                System.arraycopy(from, 0, map, 0, size + 1);
+            }
+            for (int c = 0; c < size; c++) {
+                int digit = values[index(r, columnOf[c])];
+                if (digit != 0 && map[digit] == 0) {
+                    map[digit] = label++;
+                }
+                if (out != null) {
+                    out[offset + c] = map[digit];
+                }
+            }
+            return label;
+        }
+
+        private int index(int r, int c) {
+            return transpose ? c * size + r : r * size + c;
+        }
+
+        private int compare(int length) {
+            for (int i = 0; i < length; i++) {
+                if (current[i] != best[i]) {
+                    return current[i] < best[i] ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        private int compareRows(int[] rows, int a, int b) {
+            for (int c = 0; c < size; c++) {
+                if (rows[a + c] != rows[b + c]) {
+                    return rows[a + c] < rows[b + c] ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        private CanonicalForm result() {
+            // Digits not on the grid take the labels left in order
+            int label = 1;
+            for (int digit = 1; digit <= size; digit++) {
+                label = Math.max(label, bestMap[digit] + 1);
+            }
+            int[] digitTo = bestMap.clone();
+            for (int digit = 1; digit <= size; digit++) {
+                if (digitTo[digit] == 0) {
+                    digitTo[digit] = label++;
+                }
+            }
+            int[] digitFrom = new int[size + 1];
+            for (int digit = 1; digit <= size; digit++) {
+                digitFrom[digitTo[digit]] = digit;
+            }
+            char[] key = new char[best.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = Layout.toChar(best[i]);
+            }
+            return new CanonicalForm(new String(key), bestCells.clone(), digitTo, digitFrom);
+        }
+
+        private static int[][] permutations(int n) {
+            List<int[]> found = new ArrayList<>();
+            permute(new int[n], new boolean[n], 0, found);
+            return found.toArray(new int[found.size()][]);
+        }
+
+        private static void permute(int[] perm, boolean[] used, int at, List<int[]> found) {
+            if (at == perm.length) {
+                found.add(perm.clone());
+                return;
+            }
+            for (int i = 0; i < perm.length; i++) {
+                if (!used[i]) {
+                    used[i] = true;
+                    perm[at] = i;
+                    permute(perm, used, at + 1, found);
+                    used[i] = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.sudukosolver.solver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+/**
+ * Solve using Knuth's Algorithm X with Dancing Links. Sudoku is expressed as
+ * an exact cover problem of N^3 rows, one per (cell, digit), and 4N^2 columns:
+ * each cell has a value, and each row, column and nonet has each digit once.
+ * For a 9x9 board that is 729 rows and 324 columns.
+ *
+ * The nodes are held in int arrays rather than objects. The full cover matrix
+ * is built once per board size and copied into the working arrays of a solver
+ * at the start of each solve, so solving allocates nothing once a solver has
+ * seen a board of that size. Because of the working arrays an instance must
+ * not be shared between threads.
+ *
+ * Rows are also checked against <code>Grid.canPlace</code> before they are
+ * chosen, so any constraint on the grid such as Killer cages is honoured. The
+ * column sizes know nothing of the constraint though, so this engine is best
+ * suited to classic puzzles.
+ *
+ * @author Matt
+ *
+ */
+public class DancingLinksSolver implements Solver {
+
+    private static final Map<Layout, Matrix> MATRICES = new ConcurrentHashMap<>();
+
+    /**
+     * Cover matrix of one board size, never changed once built
+     */
+    private static final class Matrix {
+
+        private final int size;
+        private final int columns;
+        // Node 0 is the root, 1..columns are the column headers
+        private final int nodes;
+
+        private final int[] left;
+        private final int[] right;
+        private final int[] up;
+        private final int[] down;
+        private final int[] column;
+        private final int[] row;
+        private final int[] count;
+
+        private Matrix(Layout layout) {
+            int cells = layout.cells();
+            size = layout.size();
+            columns = cells * 4;
+            int rows = cells * size;
+            nodes = 1 + columns + rows * 4;
+            left = new int[nodes];
+            right = new int[nodes];
+            up = new int[nodes];
+            down = new int[nodes];
+            column = new int[nodes];
+            row = new int[nodes];
+            count = new int[columns + 1];
+
+            for (int h = 0; h <= columns; h++) {
+                left[h] = h == 0 ? columns : h - 1;
+                right[h] = h == columns ? 0 : h + 1;
+                up[h] = h;
+                down[h] = h;
+                column[h] = h;
+                row[h] = -1;
+            }
+            int node = columns + 1;
+            for (int r = 0; r < rows; r++) {
+                int index = r / size;
+                int d = r % size;
+                int first = node;
+                addNode(node++, r, 1 + index);
+                addNode(node++, r, 1 + cells + layout.row(index) * size + d);
+                addNode(node++, r, 1 + cells * 2 + layout.column(index) * size + d);
+                addNode(node++, r, 1 + cells * 3 + layout.nonet(index) * size + d);
+                for (int n = first; n < node; n++) {
+                    left[n] = n == first ? node - 1 : n - 1;
+                    right[n] = n == node - 1 ? first : n + 1;
+                }
+            }
+        }
+
+        private void addNode(int node, int r, int header) {
+            column[node] = header;
+            row[node] = r;
+            up[node] = up[header];
+            down[node] = header;
+            down[up[header]] = node;
+            up[header] = node;
+            count[header]++;
+        }
+    }
+
+    private Matrix matrix;
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] count;
+    // Shared with the matrix, never changed
+    private int[] column;
+    private int[] row;
+
+    @Override
+    public boolean solve(Grid grid) {
+        return run(grid, null);
+    }
+
+    @Override
+    public boolean solve(Grid grid, SolveMetrics metrics) {
+        long start = System.nanoTime();
+        boolean solved = run(grid, metrics);
+        metrics.searchNanos += System.nanoTime() - start;
+        return solved;
+    }
+
+    /**
+     * @param metrics
+     *            null unless recording
+     */
+    private boolean run(Grid grid, SolveMetrics metrics) {
+        Matrix m = MATRICES.computeIfAbsent(grid.getLayout(), Matrix::new);
+        if (m != matrix) {
+            matrix = m;
+            left = new int[m.nodes];
+            right = new int[m.nodes];
+            up = new int[m.nodes];
+            down = new int[m.nodes];
+            count = new int[m.columns + 1];
+            column = m.column;
+            row = m.row;
+        }
+        System.arraycopy(m.left, 0, left, 0, m.nodes);
+        System.arraycopy(m.right, 0, right, 0, m.nodes);
+        System.arraycopy(m.up, 0, up, 0, m.nodes);
+        System.arraycopy(m.down, 0, down, 0, m.nodes);
+        System.arraycopy(m.count, 0, count, 0, m.columns + 1);
+
+        // Remove the rows of values already on the grid
+        for (int index = 0; index < grid.getLayout().cells(); index++) {
+            if (!grid.isEmpty(index) && !select(index * m.size + grid.get(index) - 1)) {
+                // Two values on the grid cover the same column
+                return false;
+            }
+        }
+        return search(grid, metrics, 0);
+    }
+
+    private boolean search(Grid grid, SolveMetrics metrics, int depth) {
+        if (right[0] == 0) {
+            // Givens are selected without canPlace so may break a constraint
+            return grid.getConstraint() == null || grid.getConstraint().isSatisfied(grid);
+        }
+        // Choose the column with the fewest rows left
+        int c = right[0];
+        for (int h = right[c]; h != 0; h = right[h]) {
+            if (count[h] < count[c]) {
+                c = h;
+            }
+        }
+        if (count[c] == 0) {
+            return false;
+        }
+
+        cover(c);
+        for (int r = down[c]; r != c; r = down[r]) {
+            int index = row[r] / matrix.size;
+            int digit = row[r] % matrix.size + 1;
+            if (!grid.canPlace(index, digit)) {
+                continue;
+            }
+            grid.place(index, digit);
+            if (metrics != null) {
+                metrics.guess(depth + 1);
+            }
+            for (int j = right[r]; j != r; j = right[j]) {
+                cover(column[j]);
+            }
+            if (search(grid, metrics, depth + 1)) {
+                return true;
+            }
+            for (int j = left[r]; j != r; j = left[j]) {
+                uncover(column[j]);
+            }
+            grid.clear(index);
+            if (metrics != null) {
+                metrics.backtracks++;
+            }
+        }
+        uncover(c);
+        return false;
+    }
+
+    /**
+     * Cover every column of a row that is already decided
+     */
+    private boolean select(int r) {
+        int first = matrix.columns + 1 + r * 4;
+        for (int n = first; n < first + 4; n++) {
+            int header = column[n];
+            // Column is no longer in the header list when already covered
+            if (right[left[header]] != header) {
+                return false;
+            }
+            cover(header);
+        }
+        return true;
+    }
+
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                count[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                count[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Guess the empty cells from the top left, left to right, trying the lowest
+ * digit first, however constrained each cell is
+ *
+ * @author Matt
+ *
+ */
+public class IndexOrdering implements Ordering {
+
+    @Override
+    public int nextCell(Grid grid, Candidates candidates) {
+        for (int index = 0; index < grid.getLayout().cells(); index++) {
+            if (grid.isEmpty(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextValue(Grid grid, int index, int rest, Candidates candidates) {
+        return Integer.numberOfTrailingZeros(rest) + 1;
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+/**
+ * Guess the empty cell with the fewest candidates first, the one most likely
+ * to show a bad earlier guess soonest. Of cells with as few candidates the
+ * first in index order is taken. The scan stops at the first cell with no
+ * more candidates than any cell can have, so on most guesses it looks at only
+ * part of the board.
+ *
+ * Optionally digits are tried least constraining first, the digit that the
+ * fewest empty peers could also take, so that the guess leaves the most room
+ * for the rest of the board. Ties go to the lowest digit.
+ *
+ * Not thread safe when trying least constraining digits first.
+ *
+ * @author Matt
+ *
+ */
+public class MinimumRemainingValues implements Ordering {
+
+    // Candidates few enough to stop looking for a better cell
+    private final int enough;
+    private final boolean leastConstraining;
+    // Empty peers that could take each digit, by digit - 1
+    private int[] constrains = new int[0];
+
+    public MinimumRemainingValues() {
+        this(false);
+    }
+
+    /**
+     * @param leastConstraining
+     *            try the least constraining digit first rather than the
+     *            lowest
+     */
+    public MinimumRemainingValues(boolean leastConstraining) {
+        this(1, leastConstraining);
+    }
+
+    /**
+     * @param enough
+     *            candidates no cell can have fewer of, such as 2 once naked
+     *            singles have all been placed
+     */
+    MinimumRemainingValues(int enough, boolean leastConstraining) {
+        this.enough = enough;
+        this.leastConstraining = leastConstraining;
+    }
+
+    @Override
+    public int nextCell(Grid grid, Candidates candidates) {
+        int best = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int index = 0; index < grid.getLayout().cells(); index++) {
+            if (grid.isEmpty(index)) {
+                int count = Integer.bitCount(candidates.of(grid, index));
+                if (count < fewest) {
+                    best = index;
+                    fewest = count;
+                    if (count <= enough) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int nextValue(Grid grid, int index, int rest, Candidates candidates) {
+        if (!leastConstraining || (rest & (rest - 1)) == 0) {
+            return Integer.numberOfTrailingZeros(rest) + 1;
+        }
+        Layout layout = grid.getLayout();
+        if (constrains.length != layout.size()) {
+            constrains = new int[layout.size()];
+        }
+        for (int bits = rest; bits != 0; bits &= bits - 1) {
+            constrains[Integer.numberOfTrailingZeros(bits)] = 0;
+        }
+        for (int peer : layout.peers(index)) {
+            if (grid.isEmpty(peer)) {
+                for (int bits = candidates.of(grid, peer) & rest; bits != 0; bits &= bits - 1) {
+                    constrains[Integer.numberOfTrailingZeros(bits)]++;
+                }
+            }
+        }
+        int best = -1;
+        for (int bits = rest; bits != 0; bits &= bits - 1) {
+            int digit = Integer.numberOfTrailingZeros(bits);
+            if (best < 0 || constrains[digit] < constrains[best]) {
+                best = digit;
+            }
+        }
+        return best + 1;
+    }
+}
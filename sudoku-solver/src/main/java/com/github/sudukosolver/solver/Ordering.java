@@ -0,0 +1,36 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Order in which a search guesses, which empty cell next and which of its
+ * candidates first. The order does not change what is found, only how soon.
+ *
+ * @author Matt
+ *
+ */
+public interface Ordering {
+
+    /**
+     * Candidates of a cell as the search sees them, which may be fewer than
+     * the grid allows when the search has deduced more
+     */
+    interface Candidates {
+        int of(Grid grid, int index);
+    }
+
+    /**
+     * Empty cell to guess next
+     *
+     * @return index of the cell, or -1 when the grid is full
+     */
+    int nextCell(Grid grid, Candidates candidates);
+
+    /**
+     * Digit to try next in the empty cell at index
+     *
+     * @param rest
+     *            mask of the candidates not yet tried, never 0
+     */
+    int nextValue(Grid grid, int index, int rest, Candidates candidates);
+}
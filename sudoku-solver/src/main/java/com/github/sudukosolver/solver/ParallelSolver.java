@@ -0,0 +1,119 @@
+package com.github.sudukosolver.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Solve a single puzzle on every worker of a <code>ForkJoinPool</code>. The
+ * search tree is split into a task per candidate of a guess, each with its own
+ * copy of the grid, and idle workers steal tasks from busy ones.
+ *
+ * How deep the tree is split adapts to the pool. A task splits while the pool
+ * has few tasks queued, otherwise it searches its part of the tree alone with
+ * a <code>PropagatingSolver</code>. A search that runs past its guesses gives
+ * up and splits instead, with twice the guesses for each part, so work stuck
+ * in one long search is handed back to the pool.
+ *
+ * The first solution found stops every other task at its next backtrack.
+ *
+ * @author Matt
+ *
+ */
+public class ParallelSolver implements Solver {
+
+    // Queued tasks beyond which a task searches rather than splits
+    private static final int SURPLUS = 2;
+    // Guesses a task makes before splitting the rest of its search
+    private static final long GUESSES = 1 << 10;
+
+    private final ForkJoinPool pool;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        if (pool.getParallelism() == 1) {
+            return new PropagatingSolver().solve(grid);
+        }
+        AtomicLong found = new AtomicLong();
+        AtomicReference<Grid> solution = new AtomicReference<>();
+        pool.invoke(new SearchTask(new Grid(grid), new int[grid.getLayout().cells()], GUESSES, found, solution));
+        Grid solved = solution.get();
+        if (solved == null) {
+            return false;
+        }
+        for (int index = 0; index < grid.getLayout().cells(); index++) {
+            if (grid.isEmpty(index)) {
+                grid.place(index, solved.get(index));
+            }
+        }
+        return true;
+    }
+
+    private static class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final int[] removed;
+        private final long guesses;
+        private final AtomicLong found;
+        private final AtomicReference<Grid> solution;
+
+        SearchTask(Grid grid, int[] removed, long guesses, AtomicLong found, AtomicReference<Grid> solution) {
+            this.grid = grid;
+            this.removed = removed;
+            this.guesses = guesses;
+            this.found = found;
+            this.solution = solution;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() > 0) {
+                return;
+            }
+            PropagatingSolver solver = new PropagatingSolver();
+            // The grid is this task's own copy so deductions are kept
+            if (!solver.deduce(grid, removed)) {
+                return;
+            }
+            int index = solver.nextCell(grid);
+            if (index < 0) {
+                if (grid.isSolved() && found.compareAndSet(0, 1)) {
+                    solution.set(grid);
+                }
+                return;
+            }
+            int[] deduced = solver.removed();
+            if (getSurplusQueuedTaskCount() > SURPLUS) {
+                if (solver.search(grid, deduced, found, guesses)) {
+                    solution.set(grid);
+                    return;
+                }
+                if (!solver.isStopped()) {
+                    return;
+                }
+            }
+            List<SearchTask> tasks = new ArrayList<>();
+            for (int rest = solver.candidates(grid, index); rest != 0; rest &= rest - 1) {
+                Grid child = new Grid(grid);
+                child.place(index, Integer.numberOfTrailingZeros(rest) + 1);
+                tasks.add(new SearchTask(child, deduced, guesses * 2, found, solution));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.github.sudukosolver.solver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+/**
+ * Solve by deducing values before guessing. Before the search and after every
+ * guess the following are applied until nothing changes:
+ * <ul>
+ * <li>naked singles, a cell with only one candidate left</li>
+ * <li>hidden singles, a digit with only one cell left in a row, column or
+ * nonet</li>
+ * <li>locked candidates, a digit confined to where a nonet meets a row or
+ * column can be removed from the rest of the other unit</li>
+ * </ul>
+ * Every placement and candidate removal is recorded on a trail which is
+ * unwound when a guess fails, so nothing is recalculated on backtrack. Most
+ * puzzles need no guesses at all.
+ *
+ * The search can be resumed after a solution, so the same engine also counts
+ * and iterates over every solution of a puzzle.
+ *
+ * A search may be bounded by <code>SolveLimits</code>, checked before every
+ * guess, with each guess counted as a node.
+ *
+ * Because of the trail an instance must not be shared between threads.
+ *
+ * @author Matt
+ *
+ */
+public class PropagatingSolver implements BoundedSolver {
+
+    private static final int PLACED = -1;
+
+    private final Ordering ordering;
+    private final Ordering.Candidates candidatesOf = this::candidates;
+
+    // Layout the arrays below are sized for, replaced when a grid of another
+    // size is solved
+    private Layout layout;
+
+    // Candidates removed from each cell by deduction rather than by a peer
+    private int[] removed;
+    // Each cell is placed at most once and loses each digit at most once
+    private int[] trailCell;
+    // Previous removed mask of the cell, or PLACED for a placement
+    private int[] trailOld;
+    private int trailSize;
+
+    // One frame per guess, the cell guessed, the candidates not yet tried and
+    // the trail size before the guess
+    private int[] frameCell;
+    private int[] frameRest;
+    private int[] frameMark;
+    private int depth;
+    private boolean started;
+
+    // Solution count shared with other solvers working on the same puzzle,
+    // searching stops once it reaches sharedLimit
+    private AtomicLong shared;
+    private long sharedLimit;
+    // Bounds on the search, null for none, and why the last search stopped
+    // short, null if it did not
+    private SolveLimits limits;
+    private SolveOutcome stopped;
+
+    private long guesses;
+    private int maxDepth;
+    // Whether to time propagation, only when recording metrics
+    private boolean timed;
+    private long propagateNanos;
+
+    /**
+     * Guess the cell with the fewest candidates, trying the lowest digit first
+     */
+    public PropagatingSolver() {
+        // Every cell has at least two candidates once naked singles are placed
+        this(new MinimumRemainingValues(2, false));
+    }
+
+    /**
+     * @param ordering
+     *            order to guess cells and digits in, given the candidates
+     *            left after deduction
+     */
+    public PropagatingSolver(Ordering ordering) {
+        this.ordering = ordering;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        start(grid, null);
+        return advance(grid);
+    }
+
+    @Override
+    public boolean solve(Grid grid, SolveMetrics metrics) {
+        long placements = grid.getPlacements();
+        long start = System.nanoTime();
+        start(grid, null);
+        timed = true;
+        boolean solved = advance(grid);
+        long elapsed = System.nanoTime() - start;
+        metrics.propagateNanos += propagateNanos;
+        metrics.searchNanos += elapsed - propagateNanos;
+        metrics.nodes += guesses;
+        // The guesses of each frame left are those that led to the solution
+        metrics.backtracks += guesses - (depth + 1);
+        metrics.propagations += grid.getPlacements() - placements - guesses;
+        metrics.maxDepth = Math.max(metrics.maxDepth, maxDepth);
+        return solved;
+    }
+
+    @Override
+    public SolveOutcome solve(Grid grid, SolveLimits limits) {
+        start(grid, null);
+        this.limits = limits;
+        if (advance(grid)) {
+            return SolveOutcome.SOLVED;
+        }
+        return stopped == null ? SolveOutcome.UNSOLVABLE : stopped;
+    }
+
+    /**
+     * Count the solutions of grid, stopping once limit have been found. The
+     * grid is left as it was.
+     *
+     * @param grid
+     *            grid to count the solutions of
+     * @param limit
+     *            most solutions to look for
+     * @return number of solutions found, no more than limit
+     */
+    public long count(Grid grid, long limit) {
+        start(grid, null);
+        long found = 0;
+        while (found < limit && advance(grid)) {
+            found++;
+        }
+        undo(grid, 0);
+        return found;
+    }
+
+    /**
+     * Lazily iterate over the solutions of grid. Each solution is returned as
+     * a new grid, the grid given is used for the search and must not be
+     * changed while iterating. This solver must not be used for anything else
+     * until the iterator is exhausted.
+     */
+    public Iterator<Grid> solutions(final Grid grid) {
+        start(grid, null);
+        return new Iterator<Grid>() {
+
+            // Whether the grid holds a solution not yet returned
+            private boolean ready;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready && !exhausted) {
+                    ready = advance(grid);
+                    exhausted = !ready;
+                }
+                return ready;
+            }
+
+            @Override
+            public Grid next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return new Grid(grid);
+            }
+        };
+    }
+
+    /**
+     * How many guesses the last solve made, 0 when the puzzle was solved by
+     * deduction alone
+     */
+    public long getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * Count solutions into a total shared with other solvers, stopping as soon
+     * as the total reaches limit. The grid is left as it was.
+     *
+     * @param removed
+     *            candidates already removed from each cell by deduction
+     */
+    void count(Grid grid, int[] removed, AtomicLong shared, long limit) {
+        start(grid, removed);
+        this.shared = shared;
+        this.sharedLimit = limit;
+        while (advance(grid) && shared.incrementAndGet() < limit) {
+        }
+        undo(grid, 0);
+    }
+
+    /**
+     * Search for a solution shared with other solvers working on other parts
+     * of the same puzzle. Searching stops once another solver has found one,
+     * signalled by found being above 0, or after maxGuesses guesses.
+     *
+     * @param removed
+     *            candidates already removed from each cell by deduction
+     * @return true if this solver found the solution first, the grid then
+     *         holds it, otherwise the grid is left as it was and
+     *         <code>isStopped()</code> tells whether the search ran out of
+     *         guesses
+     */
+    boolean search(Grid grid, int[] removed, AtomicLong found, long maxGuesses) {
+        start(grid, removed);
+        this.shared = found;
+        this.sharedLimit = 1;
+        this.limits = SolveLimits.nodes(maxGuesses);
+        if (advance(grid)) {
+            if (found.compareAndSet(0, 1)) {
+                return true;
+            }
+            undo(grid, 0);
+        }
+        return false;
+    }
+
+    /**
+     * Whether the last search gave up after its most guesses
+     */
+    boolean isStopped() {
+        return stopped != null;
+    }
+
+    /**
+     * Apply deductions to grid ahead of splitting the search
+     *
+     * @param removed
+     *            candidates already removed from each cell by deduction
+     * @return false if the grid can not be solved
+     */
+    boolean deduce(Grid grid, int[] removed) {
+        start(grid, removed);
+        return propagate(grid);
+    }
+
+    /**
+     * Copy of the candidates removed from each cell by deduction
+     */
+    int[] removed() {
+        return removed.clone();
+    }
+
+    /**
+     * Cell to guess next by the ordering, or -1 when the grid is full
+     */
+    int nextCell(Grid grid) {
+        return ordering.nextCell(grid, candidatesOf);
+    }
+
+    int candidates(Grid grid, int index) {
+        return grid.allowed(index) & ~removed[index];
+    }
+
+    private void start(Grid grid, int[] from) {
+        if (layout != grid.getLayout()) {
+            layout = grid.getLayout();
+            int cells = layout.cells();
+            removed = new int[cells];
+            trailCell = new int[cells * (layout.size() + 1)];
+            trailOld = new int[trailCell.length];
+            frameCell = new int[cells];
+            frameRest = new int[cells];
+            frameMark = new int[cells];
+        }
+        if (from == null) {
+            Arrays.fill(removed, 0);
+        } else {
+            System.arraycopy(from, 0, removed, 0, removed.length);
+        }
+        trailSize = 0;
+        depth = -1;
+        started = false;
+        shared = null;
+        limits = null;
+        stopped = null;
+        guesses = 0;
+        maxDepth = 0;
+        timed = false;
+        propagateNanos = 0;
+    }
+
+    /**
+     * Search on from where the last call left off until the grid holds the
+     * next solution. The search is iterative with a frame per guess so that it
+     * can be resumed.
+     *
+     * @return true if the grid holds a solution, false when there are no more
+     *         and the grid is back as it was
+     */
+    private boolean advance(Grid grid) {
+        // Propagate from the root on the first call, otherwise move past the
+        // solution last returned
+        boolean descend = !started;
+        started = true;
+        while (true) {
+            if (descend) {
+                boolean consistent;
+                if (timed) {
+                    long start = System.nanoTime();
+                    consistent = propagate(grid);
+                    propagateNanos += System.nanoTime() - start;
+                } else {
+                    consistent = propagate(grid);
+                }
+                if (consistent) {
+                    int index = nextCell(grid);
+                    if (index < 0) {
+                        if (grid.isSolved()) {
+                            return true;
+                        }
+                    } else {
+                        depth++;
+                        maxDepth = Math.max(maxDepth, depth + 1);
+                        frameCell[depth] = index;
+                        frameRest[depth] = candidates(grid, index);
+                        frameMark[depth] = trailSize;
+                    }
+                }
+            }
+            if (depth < 0 || (shared != null && shared.get() >= sharedLimit)) {
+                undo(grid, 0);
+                return false;
+            }
+            // Try the next candidate of the latest guess
+            undo(grid, frameMark[depth]);
+            int rest = frameRest[depth];
+            if (rest == 0) {
+                depth--;
+                descend = false;
+                continue;
+            }
+            if (limits != null && (stopped = limits.check(guesses)) != null) {
+                undo(grid, 0);
+                return false;
+            }
+            int digit = ordering.nextValue(grid, frameCell[depth], rest, candidatesOf);
+            frameRest[depth] = rest & ~Grid.bit(digit);
+            guesses++;
+            place(grid, frameCell[depth], digit);
+            descend = true;
+        }
+    }
+
+    /**
+     * Apply deductions until none are left
+     *
+     * @return false if the grid can not be solved
+     */
+    private boolean propagate(Grid grid) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // Naked singles
+            for (int index = 0; index < layout.cells(); index++) {
+                if (grid.isEmpty(index)) {
+                    int candidates = candidates(grid, index);
+                    if (candidates == 0) {
+                        return false;
+                    }
+                    if ((candidates & (candidates - 1)) == 0) {
+                        place(grid, index, Integer.numberOfTrailingZeros(candidates) + 1);
+                        changed = true;
+                    }
+                }
+            }
+
+            // Hidden singles
+            for (int unit = 0; unit < layout.unitCount(); unit++) {
+                int[] cells = layout.unit(unit);
+                int once = 0, twice = 0;
+                for (int cell : cells) {
+                    if (grid.isEmpty(cell)) {
+                        int candidates = candidates(grid, cell);
+                        twice |= once & candidates;
+                        once |= candidates;
+                    }
+                }
+                if ((once | grid.used(unit)) != layout.all()) {
+                    // A digit has nowhere left to go
+                    return false;
+                }
+                for (int hidden = once & ~twice; hidden != 0; hidden &= hidden - 1) {
+                    int digit = Integer.numberOfTrailingZeros(hidden) + 1;
+                    if ((grid.used(unit) & Grid.bit(digit)) != 0) {
+                        // Placed by an earlier hidden single of this unit
+                        continue;
+                    }
+                    int cell = find(grid, cells, digit);
+                    if (cell < 0) {
+                        return false;
+                    }
+                    place(grid, cell, digit);
+                    changed = true;
+                }
+            }
+
+            // Locked candidates, pointing and claiming
+            for (int s = 0; s < layout.segmentCount(); s++) {
+                int segment = union(grid, layout.segment(s));
+                if (segment == 0) {
+                    continue;
+                }
+                int pointing = segment & ~union(grid, layout.nonetRest(s));
+                if (pointing != 0 && eliminate(grid, layout.lineRest(s), pointing)) {
+                    changed = true;
+                }
+                int claiming = segment & ~union(grid, layout.lineRest(s));
+                if (claiming != 0 && eliminate(grid, layout.nonetRest(s), claiming)) {
+                    changed = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the empty cell of a unit that may still hold digit, or -1 if there
+     * is none left
+     */
+    private int find(Grid grid, int[] cells, int digit) {
+        int bit = Grid.bit(digit);
+        for (int cell : cells) {
+            if (grid.isEmpty(cell) && (candidates(grid, cell) & bit) != 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private int union(Grid grid, int[] cells) {
+        int union = 0;
+        for (int cell : cells) {
+            if (grid.isEmpty(cell)) {
+                union |= candidates(grid, cell);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Remove digits from the candidates of the empty cells given
+     *
+     * @return true if any candidate was removed
+     */
+    private boolean eliminate(Grid grid, int[] cells, int digits) {
+        boolean changed = false;
+        for (int cell : cells) {
+            if (grid.isEmpty(cell) && (candidates(grid, cell) & digits) != 0) {
+                trailCell[trailSize] = cell;
+                trailOld[trailSize++] = removed[cell];
+                removed[cell] |= digits;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void place(Grid grid, int index, int digit) {
+        grid.place(index, digit);
+        trailCell[trailSize] = index;
+        trailOld[trailSize++] = PLACED;
+    }
+
+    private void undo(Grid grid, int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int cell = trailCell[trailSize];
+            if (trailOld[trailSize] == PLACED) {
+                grid.clear(cell);
+            } else {
+                removed[cell] = trailOld[trailSize];
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.sudukosolver.solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of solutions keyed on the canonical form of their puzzle,
+ * evicting the least recently used entry once full. Solutions are held in
+ * canonical form so one entry serves every puzzle equivalent to it. A puzzle
+ * with no solution is held as an empty array.
+ *
+ * Safe to share between threads. Hits, misses and evictions are counted.
+ *
+ * @author Matt
+ *
+ */
+public class SolutionCache {
+
+    private final Map<String, int[]> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity
+     *            most solutions to hold
+     */
+    public SolutionCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.entries = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Canonical solution of a canonical puzzle key, or null if not held
+     */
+    public synchronized int[] get(String key) {
+        int[] solution = entries.get(key);
+        if (solution == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return solution;
+    }
+
+    public synchronized void put(String key, int[] solution) {
+        entries.put(key, solution);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache size=%d hits=%d misses=%d evictions=%d", entries.size(), hits, misses,
+                evictions);
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.sudukosolver.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Count the solutions of a puzzle in parallel. The search tree is split on the
+ * first guesses into a task per candidate, each solved on a
+ * <code>ForkJoinPool</code> with its own copy of the grid. All tasks add to one
+ * total and stop as soon as the limit is reached, so a uniqueness check stops
+ * at the second solution wherever it is found.
+ *
+ * @author Matt
+ *
+ */
+public class SolutionCounter {
+
+    // Guesses made before the remaining search is left to a single task
+    private static final int SPLIT_DEPTH = 2;
+
+    private final ForkJoinPool pool;
+
+    public SolutionCounter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SolutionCounter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Count the solutions of grid, stopping once limit have been found. The
+     * grid is not changed.
+     *
+     * @return number of solutions found, no more than limit
+     */
+    public long count(Grid grid, long limit) {
+        AtomicLong found = new AtomicLong();
+        pool.invoke(new CountTask(new Grid(grid), new int[grid.getLayout().cells()], 0, found, limit));
+        return Math.min(found.get(), limit);
+    }
+
+    /**
+     * Check that grid has exactly one solution, stopping at the second
+     */
+    public boolean isUnique(Grid grid) {
+        return count(grid, 2) == 1;
+    }
+
+    private static class CountTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final int[] removed;
+        private final int depth;
+        private final AtomicLong found;
+        private final long limit;
+
+        CountTask(Grid grid, int[] removed, int depth, AtomicLong found, long limit) {
+            this.grid = grid;
+            this.removed = removed;
+            this.depth = depth;
+            this.found = found;
+            this.limit = limit;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() >= limit) {
+                return;
+            }
+            PropagatingSolver solver = new PropagatingSolver();
+            if (depth == SPLIT_DEPTH) {
+                solver.count(grid, removed, found, limit);
+                return;
+            }
+            // The grid is this task's own copy so deductions are kept
+            if (!solver.deduce(grid, removed)) {
+                return;
+            }
+            int index = solver.nextCell(grid);
+            if (index < 0) {
+                if (grid.isSolved()) {
+                    found.incrementAndGet();
+                }
+                return;
+            }
+            List<CountTask> tasks = new ArrayList<>();
+            for (int rest = solver.candidates(grid, index); rest != 0; rest &= rest - 1) {
+                Grid child = new Grid(grid);
+                child.place(index, Integer.numberOfTrailingZeros(rest) + 1);
+                tasks.add(new CountTask(child, solver.removed(), depth + 1, found, limit));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.github.sudukosolver.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.print.PackedWriter;
+
+/**
+ * Append only store of solved puzzles in a directory of memory mapped files,
+ * for holding far more solutions than fit on the heap.
+ *
+ * Each puzzle is kept as one record in the format of
+ * <code>PackedWriter</code>, 42 bytes for a 9x9 board, appended to segment
+ * files of a fixed size. A solvable puzzle is kept as its solution, an
+ * unsolvable one as the puzzle itself with the top bit of its size byte set.
+ * The records are found through an open addressing hash table mapping a 64
+ * bit fingerprint of the puzzle to its record number, so a lookup is a probe
+ * of mapped memory and allocates nothing. A solution is only used when it
+ * agrees with every value of the puzzle, so puzzles sharing a fingerprint
+ * cannot be given the wrong answer.
+ *
+ * The table is doubled into a new file, index-&lt;capacity&gt;.dat, as it
+ * fills, since a mapped file can not be replaced on every platform. The file
+ * of the largest capacity with a header is the index, the header of a new one
+ * being written once every entry is moved, and the others are deleted when
+ * they can be.
+ *
+ * A store holds boards of one layout, up to 15x15. A record is written before
+ * its index entry, the index header last. Safe to share between threads.
+ *
+ * @author Matt
+ *
+ */
+public final class SolutionStore implements Closeable {
+
+    public static final long SEGMENT_BYTES = 1L << 28;
+
+    private static final String INDEX = "index-%d.dat";
+    private static final int MAGIC = 0x53554453;
+    // Magic, board size, records per segment, capacity, entries, records
+    private static final int HEADER = 64;
+    private static final int SIZE_AT = 4;
+    private static final int PER_SEGMENT_AT = 8;
+    private static final int CAPACITY_AT = 16;
+    private static final int COUNT_AT = 24;
+    private static final int RECORDS_AT = 32;
+    // Top bit of the size byte of the record of an unsolvable puzzle
+    private static final int UNSOLVABLE = 0x80;
+    // Fingerprint then record number, a fingerprint of 0 is an empty slot
+    private static final int SLOT = 16;
+    private static final long INITIAL_CAPACITY = 1 << 16;
+    // Bytes of the index mapped in each buffer
+    private static final long PAGE = 1L << 30;
+
+    private final Path directory;
+    private final Layout layout;
+    private final int recordSize;
+    private final long perSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private MappedByteBuffer[] index;
+    private long capacity;
+    private long count;
+    private long records;
+
+    // Record of the puzzle being looked up and of a stored record
+    private final byte[] packed;
+    private final byte[] stored;
+
+    private long hits;
+    private long misses;
+
+    private SolutionStore(Path directory, Layout layout, long segmentBytes) throws IOException {
+        if (layout.size() >= 16) {
+            throw new IllegalArgumentException("Boards of " + layout + " are too large to store");
+        }
+        this.directory = directory;
+        this.layout = layout;
+        this.recordSize = PackedWriter.recordSize(layout);
+        this.packed = new byte[recordSize];
+        this.stored = new byte[recordSize];
+        Path file = latestIndex(directory);
+        if (file != null) {
+            this.index = map(file, Files.size(file));
+            if (index[0].getInt(SIZE_AT) != layout.size()) {
+                throw new IllegalArgumentException(
+                        "Store in " + directory + " holds boards of size " + index[0].getInt(SIZE_AT));
+            }
+            this.perSegment = index[0].getLong(PER_SEGMENT_AT);
+            this.capacity = index[0].getLong(CAPACITY_AT);
+            this.count = index[0].getLong(COUNT_AT);
+            this.records = index[0].getLong(RECORDS_AT);
+            for (long segment = 0; segment * perSegment < records; segment++) {
+                segments.add(segment(segment));
+            }
+        } else {
+            if (segmentBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Segments are limited to " + Integer.MAX_VALUE + " bytes");
+            }
+            this.perSegment = segmentBytes / recordSize;
+            if (perSegment < 1) {
+                throw new IllegalArgumentException("Segments of " + segmentBytes + " bytes hold no records");
+            }
+            this.capacity = INITIAL_CAPACITY;
+            this.index = map(indexFile(capacity), HEADER + capacity * SLOT);
+            writeHeader(index, capacity);
+        }
+    }
+
+    /**
+     * Open the store in directory, creating it if there is none
+     *
+     * @param layout
+     *            boards the store holds
+     */
+    public static SolutionStore open(Path directory, Layout layout) throws IOException {
+        return open(directory, layout, SEGMENT_BYTES);
+    }
+
+    static SolutionStore open(Path directory, Layout layout, long segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        return new SolutionStore(directory, layout, segmentBytes);
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Whether puzzles of grid can be kept in this store
+     */
+    public boolean isStorable(Grid grid) {
+        return grid.getLayout() == layout && grid.getConstraint() == null;
+    }
+
+    /**
+     * Look up the puzzle held by grid, filling its empty cells when its
+     * solution is stored
+     *
+     * @return SOLVED when the grid was filled, UNSOLVABLE when the puzzle is
+     *         stored as having no solution, null when it is not stored
+     */
+    public synchronized SolveOutcome find(Grid grid) {
+        if (!isStorable(grid)) {
+            return null;
+        }
+        pack(grid, packed);
+        long slot = slotOf(fingerprint(packed));
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (stored[0] < 0) {
+            return SolveOutcome.UNSOLVABLE;
+        }
+        for (int index = 0; index < layout.cells(); index++) {
+            if (grid.isEmpty(index)) {
+                grid.place(index, digit(stored, index));
+            }
+        }
+        return SolveOutcome.SOLVED;
+    }
+
+    /**
+     * Keep the outcome of solving a puzzle
+     *
+     * @param puzzle
+     *            values of the puzzle before it was solved
+     * @param solution
+     *            full grid solving puzzle, or null when it has no solution
+     * @return false when the puzzle was already stored
+     */
+    public synchronized boolean put(Grid puzzle, Grid solution) {
+        if (!isStorable(puzzle)) {
+            throw new IllegalArgumentException("Expected a " + layout + " grid without a constraint");
+        }
+        pack(puzzle, packed);
+        long fingerprint = fingerprint(packed);
+        if (slotOf(fingerprint) >= 0) {
+            return false;
+        }
+        if (solution != null) {
+            pack(solution, packed);
+        } else {
+            packed[0] |= UNSOLVABLE;
+        }
+        long record = records;
+        long segment = record / perSegment;
+        if (segment == segments.size()) {
+            try {
+                segments.add(segment(segment));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        MappedByteBuffer buffer = segments.get((int) segment);
+        int at = (int) (record % perSegment) * recordSize;
+        for (int i = 0; i < recordSize; i++) {
+            buffer.put(at + i, packed[i]);
+        }
+        insert(index, capacity, fingerprint, record);
+        records++;
+        count++;
+        if (count * 2 > capacity) {
+            grow();
+        }
+        writeHeader(index, capacity);
+        return true;
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Write every change to the files
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        for (MappedByteBuffer page : index) {
+            page.force();
+        }
+    }
+
+    /**
+     * Write every change to the files. The mappings themselves are released
+     * once the store is garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        segments.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Store size=%d hits=%d misses=%d", count, hits, misses);
+    }
+
+    /**
+     * Slot of the record matching the packed puzzle, copying the record to
+     * stored, or -1 when there is none
+     */
+    private long slotOf(long fingerprint) {
+        long mask = capacity - 1;
+        for (long slot = fingerprint & mask;; slot = (slot + 1) & mask) {
+            long found = getLong(index, slot, 0);
+            if (found == 0) {
+                return -1;
+            }
+            if (found == fingerprint) {
+                read(getLong(index, slot, 8));
+                if (matches()) {
+                    return slot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the stored record is the packed puzzle marked as unsolvable or
+     * a solution agreeing with each of its values
+     */
+    private boolean matches() {
+        if ((stored[0] & ~UNSOLVABLE & 0xFF) != packed[0]) {
+            return false;
+        }
+        boolean solution = (stored[0] & UNSOLVABLE) == 0;
+        for (int i = 1; i < recordSize; i++) {
+            int p = packed[i] & 0xFF;
+            int s = stored[i] & 0xFF;
+            if (!solution) {
+                if (p != s) {
+                    return false;
+                }
+            } else if (((p >>> 4) != 0 && (p >>> 4) != (s >>> 4)) || ((p & 0xF) != 0 && (p & 0xF) != (s & 0xF))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digit(byte[] record, int index) {
+        int b = record[1 + index / 2] & 0xFF;
+        return (index & 1) == 0 ? b >>> 4 : b & 0xF;
+    }
+
+    private void read(long record) {
+        MappedByteBuffer buffer = segments.get((int) (record / perSegment));
+        int at = (int) (record % perSegment) * recordSize;
+        for (int i = 0; i < recordSize; i++) {
+            stored[i] = buffer.get(at + i);
+        }
+    }
+
+    private void pack(Grid grid, byte[] record) {
+        int cells = layout.cells();
+        record[0] = (byte) layout.size();
+        for (int index = 0; index < cells; index += 2) {
+            record[1 + index / 2] = (byte) (grid.get(index) << 4 | (index + 1 < cells ? grid.get(index + 1) : 0));
+        }
+    }
+
+    /**
+     * FNV-1a of the record with its bits mixed, never 0
+     */
+    private static long fingerprint(byte[] record) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : record) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Double the index into a new file, writing its header once every entry
+     * is moved so it only takes over from the old file when complete
+     */
+    private void grow() {
+        long larger = capacity * 2;
+        Path old = indexFile(capacity);
+        try {
+            Path next = indexFile(larger);
+            Files.deleteIfExists(next);
+            MappedByteBuffer[] pages = map(next, HEADER + larger * SLOT);
+            for (long slot = 0; slot < capacity; slot++) {
+                long fingerprint = getLong(index, slot, 0);
+                if (fingerprint != 0) {
+                    insert(pages, larger, fingerprint, getLong(index, slot, 8));
+                }
+            }
+            for (MappedByteBuffer page : pages) {
+                page.force();
+            }
+            writeHeader(pages, larger);
+            pages[0].force();
+            index = pages;
+            capacity = larger;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            Files.deleteIfExists(old);
+        } catch (IOException e) {
+            // Still mapped, it is deleted when the store is next opened
+        }
+    }
+
+    private Path indexFile(long capacity) {
+        return directory.resolve(String.format(INDEX, capacity));
+    }
+
+    /**
+     * The index file of the largest capacity with a header, deleting any
+     * other, or null when there is none
+     */
+    private static Path latestIndex(Path directory) throws IOException {
+        Path latest = null;
+        long latestCapacity = 0;
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "index-*.dat")) {
+            for (Path file : files) {
+                long capacity = capacityOf(file);
+                if (capacity > latestCapacity) {
+                    if (latest != null) {
+                        stale.add(latest);
+                    }
+                    latest = file;
+                    latestCapacity = capacity;
+                } else {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+        return latest;
+    }
+
+    /**
+     * Capacity in the header of an index file, read without mapping it so it
+     * can still be deleted, or 0 when it has no header
+     */
+    private static long capacityOf(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read until the header is full or the file ends
+            }
+        }
+        return header.getInt(0) == MAGIC ? header.getLong(CAPACITY_AT) : 0;
+    }
+
+    private static void insert(MappedByteBuffer[] pages, long capacity, long fingerprint, long record) {
+        long mask = capacity - 1;
+        long slot = fingerprint & mask;
+        while (getLong(pages, slot, 0) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        putLong(pages, slot, 8, record);
+        putLong(pages, slot, 0, fingerprint);
+    }
+
+    private void writeHeader(MappedByteBuffer[] pages, long capacity) {
+        MappedByteBuffer header = pages[0];
+        header.putInt(0, MAGIC);
+        header.putInt(SIZE_AT, layout.size());
+        header.putLong(PER_SEGMENT_AT, perSegment);
+        header.putLong(CAPACITY_AT, capacity);
+        header.putLong(COUNT_AT, count);
+        header.putLong(RECORDS_AT, records);
+    }
+
+    private static long getLong(MappedByteBuffer[] pages, long slot, int field) {
+        long at = HEADER + slot * SLOT + field;
+        return pages[(int) (at / PAGE)].getLong((int) (at % PAGE));
+    }
+
+    private static void putLong(MappedByteBuffer[] pages, long slot, int field, long value) {
+        long at = HEADER + slot * SLOT + field;
+        pages[(int) (at / PAGE)].putLong((int) (at % PAGE), value);
+    }
+
+    private MappedByteBuffer segment(long segment) throws IOException {
+        Path file = directory.resolve(String.format("segment-%05d.dat", segment));
+        return map(file, perSegment * recordSize)[0];
+    }
+
+    /**
+     * Map a file of bytes in pages, creating or extending it as needed
+     */
+    private static MappedByteBuffer[] map(Path file, long bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < bytes) {
+                raf.setLength(bytes);
+            }
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer[] pages = new MappedByteBuffer[(int) ((bytes + PAGE - 1) / PAGE)];
+            for (int page = 0; page < pages.length; page++) {
+                long start = page * PAGE;
+                pages[page] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(PAGE, bytes - start));
+            }
+            return pages;
+        }
+    }
+}
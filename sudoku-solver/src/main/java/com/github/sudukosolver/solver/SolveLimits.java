@@ -0,0 +1,82 @@
+package com.github.sudukosolver.solver;
+
+import java.time.Duration;
+
+/**
+ * Bounds on a search, any of a deadline, a most number of nodes and a token to
+ * cancel it by. A deadline runs from when the limits are created.
+ *
+ * @author Matt
+ *
+ */
+public final class SolveLimits {
+
+    // The clock is read on every node whose count has these bits clear
+    private static final long CLOCK_MASK = 0xFF;
+
+    private final boolean timed;
+    // System.nanoTime of the deadline when timed
+    private final long deadline;
+    private final long maxNodes;
+    // Null unless the search can be cancelled
+    private final CancellationToken token;
+
+    /**
+     * @param timeout
+     *            longest the search may take from now, or null for no
+     *            deadline
+     * @param maxNodes
+     *            most nodes, guesses, the search may visit
+     * @param token
+     *            token to cancel the search by, or null
+     */
+    public SolveLimits(Duration timeout, long maxNodes, CancellationToken token) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("Nodes must not be negative");
+        }
+        this.timed = timeout != null;
+        this.deadline = timed ? System.nanoTime() + timeout.toNanos() : 0;
+        this.maxNodes = maxNodes;
+        this.token = token;
+    }
+
+    /**
+     * Limit to a deadline from now
+     */
+    public static SolveLimits within(Duration timeout) {
+        return new SolveLimits(timeout, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Limit to a most number of nodes
+     */
+    public static SolveLimits nodes(long maxNodes) {
+        return new SolveLimits(null, maxNodes, null);
+    }
+
+    /**
+     * Limit only by cancellation
+     */
+    public static SolveLimits until(CancellationToken token) {
+        return new SolveLimits(null, Long.MAX_VALUE, token);
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Why a search that has visited nodes must stop, or null if it may go on.
+     * The deadline is only checked every 256 nodes, counting from 0, so a
+     * search may run that many nodes past it.
+     */
+    SolveOutcome check(long nodes) {
+        if (token != null && token.isCancelled()) {
+            return SolveOutcome.CANCELLED;
+        }
+        if (nodes >= maxNodes || (timed && (nodes & CLOCK_MASK) == 0 && System.nanoTime() - deadline >= 0)) {
+            return SolveOutcome.BUDGET_EXHAUSTED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.sudukosolver.solver;
+
+/**
+ * Where the time of a solve went and how much searching it took. Filled in by
+ * <code>Solver.solve(Grid, SolveMetrics)</code>, which adds to the values
+ * already held, so one instance can be reset and reused from solve to solve.
+ *
+ * <ul>
+ * <li>nodes, guesses made by the search</li>
+ * <li>backtracks, guesses undone because they led nowhere</li>
+ * <li>propagations, values placed by deduction rather than guessed</li>
+ * <li>max depth, most guesses in force at once</li>
+ * </ul>
+ * Times are from <code>System.nanoTime</code>. Not thread safe.
+ *
+ * @author Matt
+ *
+ */
+public class SolveMetrics {
+
+    long parseNanos;
+    long propagateNanos;
+    long searchNanos;
+    long nodes;
+    long backtracks;
+    long propagations;
+    int maxDepth;
+
+    /**
+     * Count a guess made at depth, the first guess being at depth 1
+     */
+    void guess(int depth) {
+        nodes++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    public void reset() {
+        parseNanos = 0;
+        propagateNanos = 0;
+        searchNanos = 0;
+        nodes = 0;
+        backtracks = 0;
+        propagations = 0;
+        maxDepth = 0;
+    }
+
+    /**
+     * Time spent reading the puzzle, recorded by whoever read it
+     */
+    public void setParseNanos(long parseNanos) {
+        this.parseNanos = parseNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getPropagateNanos() {
+        return propagateNanos;
+    }
+
+    /**
+     * Time spent solving other than propagating
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public long getTotalNanos() {
+        return parseNanos + propagateNanos + searchNanos;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("parse=%dns propagate=%dns search=%dns nodes=%d backtracks=%d propagations=%d maxDepth=%d",
+                parseNanos, propagateNanos, searchNanos, nodes, backtracks, propagations, maxDepth);
+    }
+}
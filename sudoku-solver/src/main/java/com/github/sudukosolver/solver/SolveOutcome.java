@@ -0,0 +1,27 @@
+package com.github.sudukosolver.solver;
+
+/**
+ * How an attempt to solve within <code>SolveLimits</code> ended
+ *
+ * @author Matt
+ *
+ */
+public enum SolveOutcome {
+
+    /**
+     * The grid holds a solution
+     */
+    SOLVED,
+    /**
+     * The whole search found no solution
+     */
+    UNSOLVABLE,
+    /**
+     * The deadline passed or the nodes ran out before the search finished
+     */
+    BUDGET_EXHAUSTED,
+    /**
+     * The token was cancelled before the search finished
+     */
+    CANCELLED;
+}
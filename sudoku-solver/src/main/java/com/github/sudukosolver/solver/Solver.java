@@ -0,0 +1,44 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Strategy used to complete a <code>Grid</code>. Values already on the grid
+ * are treated as fixed, the empty cells are filled in place.
+ *
+ * @author Matt
+ *
+ */
+public interface Solver {
+
+    /**
+     * Attempt to fill every empty cell of grid so that all of its rules hold.
+     * When no solution is found the grid is left as it was.
+     *
+     * @param grid
+     *            grid to solve
+     * @return true if the grid was solved
+     */
+    public boolean solve(Grid grid);
+
+    /**
+     * Solve as <code>solve(Grid)</code> while adding to metrics. Engines that
+     * do not record their own metrics are timed as a whole, with each
+     * placement counted as a node.
+     *
+     * @param grid
+     *            grid to solve
+     * @param metrics
+     *            metrics to add to
+     * @return true if the grid was solved
+     */
+    public default boolean solve(Grid grid, SolveMetrics metrics) {
+        long placements = grid.getPlacements();
+        long start = System.nanoTime();
+        boolean solved = solve(grid);
+        metrics.searchNanos += System.nanoTime() - start;
+        metrics.nodes += grid.getPlacements() - placements;
+        return solved;
+    }
+
+}
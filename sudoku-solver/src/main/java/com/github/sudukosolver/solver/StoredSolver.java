@@ -0,0 +1,96 @@
+package com.github.sudukosolver.solver;
+
+import com.github.sudukosolver.Grid;
+
+/**
+ * Look up each puzzle in a <code>SolutionStore</code> before solving it with
+ * another engine, keeping what the engine finds. Unlike
+ * <code>CachingSolver</code> puzzles are matched exactly rather than by
+ * canonical form, which keeps a lookup to one probe of the store's index.
+ *
+ * Grids with a constraint and boards of another layout than the store go
+ * straight to the engine. A bounded solve needs a <code>BoundedSolver</code>
+ * engine and keeps only outcomes the search finished, SOLVED or UNSOLVABLE.
+ * This solver is as thread safe as its engine.
+ *
+ * @author Matt
+ *
+ */
+public class StoredSolver implements BoundedSolver {
+
+    private final SolutionStore store;
+    private final Solver engine;
+
+    /**
+     * @param store
+     *            store to look up and keep solutions in
+     * @param engine
+     *            solver used on a miss
+     */
+    public StoredSolver(SolutionStore store, Solver engine) {
+        this.store = store;
+        this.engine = engine;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        SolveOutcome found = store.find(grid);
+        if (found != null) {
+            return found == SolveOutcome.SOLVED;
+        }
+        if (!store.isStorable(grid)) {
+            return engine.solve(grid);
+        }
+        Grid puzzle = new Grid(grid);
+        boolean solved = engine.solve(grid);
+        store.put(puzzle, solved ? grid : null);
+        return solved;
+    }
+
+    @Override
+    public boolean solve(Grid grid, SolveMetrics metrics) {
+        long start = System.nanoTime();
+        SolveOutcome found = store.find(grid);
+        metrics.searchNanos += System.nanoTime() - start;
+        if (found != null) {
+            return found == SolveOutcome.SOLVED;
+        }
+        if (!store.isStorable(grid)) {
+            return engine.solve(grid, metrics);
+        }
+        Grid puzzle = new Grid(grid);
+        boolean solved = engine.solve(grid, metrics);
+        store.put(puzzle, solved ? grid : null);
+        return solved;
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             when the engine is not a <code>BoundedSolver</code>
+     */
+    @Override
+    public SolveOutcome solve(Grid grid, SolveLimits limits) {
+        if (!(engine instanceof BoundedSolver)) {
+            throw new UnsupportedOperationException("Engine " + engine.getClass().getSimpleName()
+                    + " can not be bounded");
+        }
+        BoundedSolver bounded = (BoundedSolver) engine;
+        SolveOutcome found = store.find(grid);
+        if (found != null) {
+            return found;
+        }
+        if (!store.isStorable(grid)) {
+            return bounded.solve(grid, limits);
+        }
+        Grid puzzle = new Grid(grid);
+        SolveOutcome outcome = bounded.solve(grid, limits);
+        if (outcome == SolveOutcome.SOLVED || outcome == SolveOutcome.UNSOLVABLE) {
+            store.put(puzzle, outcome == SolveOutcome.SOLVED ? grid : null);
+        }
+        return outcome;
+    }
+
+    public SolutionStore getStore() {
+        return store;
+    }
+}
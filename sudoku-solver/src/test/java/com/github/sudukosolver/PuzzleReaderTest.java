@@ -0,0 +1,26 @@
+package com.github.sudukosolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class PuzzleReaderTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cageWithoutTotal() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                text.append(x == 0 ? "" : ",").append(y == 8 && x == 8 ? "z" : "a" + y);
+            }
+            text.append('\n');
+        }
+        for (int y = 0; y < 9; y++) {
+            text.append("a").append(y).append("=").append(y == 8 ? 36 : 45).append('\n');
+        }
+        new PuzzleReader(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII)),
+                PuzzleReader.Format.KILLER).next();
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.sudukosolver.batch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.github.sudukosolver.PuzzleReader;
+import com.github.sudukosolver.solver.DancingLinksSolver;
+
+public class BatchSolverTest {
+
+    private static final String PUZZLE = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String SOLUTION = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    public void malformedPuzzleWrittenBack() throws IOException {
+        StringWriter out = new StringWriter();
+        BatchSummary summary = run(new BatchSolver(1, DancingLinksSolver::new), PUZZLE + "\n12\n" + PUZZLE + "\n",
+                out);
+        assertEquals(3, summary.getPuzzles());
+        assertEquals(2, summary.getSolved());
+        assertEquals(SOLUTION + "\n12\n" + SOLUTION + "\n", out.toString());
+    }
+
+    @Test
+    public void lockstep() throws IOException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            text.append(PUZZLE).append('\n');
+            expected.append(SOLUTION).append('\n');
+        }
+        text.append("12\n").append(PUZZLE).append('\n');
+        expected.append("12\n").append(SOLUTION).append('\n');
+        StringWriter out = new StringWriter();
+        BatchSummary summary = run(new BatchSolver(1), text.toString(), out);
+        assertEquals(8, summary.getPuzzles());
+        assertEquals(7, summary.getSolved());
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    private static BatchSummary run(BatchSolver batch, String text, StringWriter out) throws IOException {
+        try (PuzzleReader in = new PuzzleReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)),
+                PuzzleReader.Format.LINE)) {
+            return batch.run(in, out);
+        } finally {
+            batch.shutdown();
+        }
+    }
+}
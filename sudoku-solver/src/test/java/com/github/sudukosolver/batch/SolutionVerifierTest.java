@@ -0,0 +1,71 @@
+package com.github.sudukosolver.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.batch.SolutionVerifier.Encoding;
+import com.github.sudukosolver.batch.SolutionVerifier.Failure;
+import com.github.sudukosolver.batch.SolutionVerifier.Report;
+
+public class SolutionVerifierTest {
+
+    private static final String PUZZLE = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String SOLUTION = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private final SolutionVerifier verifier = new SolutionVerifier();
+
+    @Test
+    public void mixedLineBreaks() {
+        Report report = verify(SOLUTION + "\r\n" + SOLUTION + "\n" + SOLUTION + "\r\n\r\n");
+        assertEquals(3, report.size());
+        assertEquals(3, report.countValid());
+    }
+
+    @Test
+    public void runTogether() {
+        Report report = verify(SOLUTION + SOLUTION + SOLUTION);
+        assertEquals(3, report.size());
+        assertEquals(3, report.countValid());
+    }
+
+    @Test
+    public void shortLine() {
+        Report report = verify(SOLUTION + "\n" + SOLUTION.substring(1) + "\n" + SOLUTION + "\n");
+        assertEquals(3, report.size());
+        assertNull(report.getFailure(0));
+        assertEquals(Failure.MALFORMED, report.getFailure(1));
+        assertNull(report.getFailure(2));
+    }
+
+    @Test
+    public void longLine() {
+        Report report = verify(SOLUTION + "\r\n" + SOLUTION + "5\r\n" + SOLUTION);
+        assertEquals(3, report.size());
+        assertNull(report.getFailure(0));
+        assertEquals(Failure.MALFORMED, report.getFailure(1));
+        assertNull(report.getFailure(2));
+    }
+
+    @Test
+    public void onePerPuzzle() {
+        Grid puzzle = Grid.parse(PUZZLE);
+        Report report = verifier.verify(new Grid[] { puzzle, puzzle, puzzle },
+                ByteBuffer.wrap(bytes(SOLUTION + "\n" + SOLUTION + "5\n" + SOLUTION + "\n\n")), Encoding.TEXT);
+        assertEquals(2, report.countValid());
+        assertEquals(1, report.count(Failure.MALFORMED));
+    }
+
+    private Report verify(String submissions) {
+        return verifier.verify(Grid.parse(PUZZLE), bytes(submissions), Encoding.TEXT);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
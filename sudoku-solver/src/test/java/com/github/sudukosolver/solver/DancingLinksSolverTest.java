@@ -0,0 +1,32 @@
+package com.github.sudukosolver.solver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+import com.github.sudukosolver.Variant;
+
+public class DancingLinksSolverTest {
+
+    // A classic solution repeating 7 on the leading diagonal
+    private static final String SOLUTION = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    public void givensBreakingConstraint() {
+        Grid grid = new Grid(Layout.CLASSIC, Variant.builder(Layout.CLASSIC).diagonals().build());
+        for (int index = 0; index < SOLUTION.length(); index++) {
+            grid.place(index, SOLUTION.charAt(index) - '0');
+        }
+        assertFalse(new DancingLinksSolver().solve(grid));
+    }
+
+    @Test
+    public void givensWithoutConstraint() {
+        Grid grid = Grid.parse(SOLUTION);
+        assertTrue(new DancingLinksSolver().solve(grid));
+        assertTrue(grid.isSolved());
+    }
+}
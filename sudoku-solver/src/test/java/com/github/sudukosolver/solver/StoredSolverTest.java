@@ -0,0 +1,44 @@
+package com.github.sudukosolver.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sudukosolver.Grid;
+import com.github.sudukosolver.Layout;
+
+public class StoredSolverTest {
+
+    private static final String PUZZLE = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void boundedSolveUsesStore() throws IOException {
+        try (SolutionStore store = SolutionStore.open(folder.getRoot().toPath(), Layout.CLASSIC)) {
+            StoredSolver solver = new StoredSolver(store, new PropagatingSolver());
+            assertEquals(SolveOutcome.SOLVED, solver.solve(Grid.parse(PUZZLE), SolveLimits.nodes(1000)));
+            assertEquals(1, store.size());
+            Grid again = Grid.parse(PUZZLE);
+            assertEquals(SolveOutcome.SOLVED, solver.solve(again, SolveLimits.nodes(0)));
+            assertEquals(1, store.getHits());
+            assertTrue(again.isSolved());
+        }
+    }
+
+    @Test
+    public void exhaustedSolveNotStored() throws IOException {
+        try (SolutionStore store = SolutionStore.open(folder.getRoot().toPath(), Layout.CLASSIC)) {
+            StoredSolver solver = new StoredSolver(store, new PropagatingSolver());
+            assertEquals(SolveOutcome.BUDGET_EXHAUSTED,
+                    solver.solve(new Grid(Layout.CLASSIC, null), SolveLimits.nodes(0)));
+            assertEquals(0, store.size());
+        }
+    }
+}